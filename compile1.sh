@@ -0,0 +1,2 @@
+#!/bin/bash
+javac -d classes/ src/java/ru/ifmo/rain/brilyantov/walk/*.java
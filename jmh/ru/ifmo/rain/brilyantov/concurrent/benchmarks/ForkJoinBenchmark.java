@@ -0,0 +1,86 @@
+package ru.ifmo.rain.brilyantov.concurrent.benchmarks;
+
+import info.kgeorgiy.java.advanced.concurrent.ListIP;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.ifmo.rain.brilyantov.concurrent.ForkJoinParallelism;
+import ru.ifmo.rain.brilyantov.concurrent.IterativeParallelism;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ForkJoinParallelism} against {@link IterativeParallelism} with new threads for every call
+ * and with its own pool, on a cheap scalar operation, a mapping of {@value #WORK} CPU tokens per value and a join.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ForkJoinBenchmark {
+    private static final long WORK = 100;
+
+    @Param({"THREADS", "POOL", "FORK_JOIN"})
+    public String engine;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private ListIP parallelism;
+    private AutoCloseable closeable;
+    private List<Integer> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (engine) {
+            case "THREADS":
+                IterativeParallelism threadsParallelism = new IterativeParallelism();
+                parallelism = threadsParallelism;
+                closeable = threadsParallelism;
+                break;
+            case "POOL":
+                IterativeParallelism poolParallelism = IterativeParallelism.pooled(threads);
+                parallelism = poolParallelism;
+                closeable = poolParallelism;
+                break;
+            default:
+                ForkJoinParallelism forkJoinParallelism = new ForkJoinParallelism();
+                parallelism = forkJoinParallelism;
+                closeable = forkJoinParallelism;
+        }
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i * 31 % size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.naturalOrder());
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return parallelism.map(threads, values, value -> {
+            Blackhole.consumeCPU(WORK);
+            return value + 1;
+        });
+    }
+
+    @Benchmark
+    public String join() throws InterruptedException {
+        return parallelism.join(threads, values);
+    }
+}
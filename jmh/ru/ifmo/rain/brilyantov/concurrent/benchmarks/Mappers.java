@@ -0,0 +1,27 @@
+package ru.ifmo.rain.brilyantov.concurrent.benchmarks;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import ru.ifmo.rain.brilyantov.concurrent.ParallelMapperImpl;
+import ru.ifmo.rain.brilyantov.concurrent.VirtualThreadParallelMapper;
+import ru.ifmo.rain.brilyantov.concurrent.WorkStealingParallelMapper;
+
+import java.util.function.IntFunction;
+
+/**
+ * Parallel mapper implementations under benchmark, created by the number of threads.
+ */
+public enum Mappers {
+    QUEUE(ParallelMapperImpl::new),
+    STEALING(WorkStealingParallelMapper::new),
+    VIRTUAL(VirtualThreadParallelMapper::new);
+
+    private final IntFunction<ParallelMapper> factory;
+
+    Mappers(IntFunction<ParallelMapper> factory) {
+        this.factory = factory;
+    }
+
+    public ParallelMapper create(int threads) {
+        return factory.apply(threads);
+    }
+}
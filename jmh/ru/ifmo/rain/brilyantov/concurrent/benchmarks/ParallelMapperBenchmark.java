@@ -0,0 +1,57 @@
+package ru.ifmo.rain.brilyantov.concurrent.benchmarks;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single map call over a list of fine-grained tasks, every task burns {@code work} CPU tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelMapperBenchmark {
+    @Param({"QUEUE", "STEALING", "VIRTUAL"})
+    public Mappers mapper;
+
+    @Param({"1", "8", "32", "64"})
+    public int threads;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"0", "100"})
+    public long work;
+
+    private ParallelMapper parallelMapper;
+    private List<Integer> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parallelMapper = mapper.create(threads);
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelMapper.close();
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return parallelMapper.map(value -> {
+            Blackhole.consumeCPU(work);
+            return value + 1;
+        }, values);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.ifmo.rain.brilyantov.concurrent.benchmarks;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.brilyantov.concurrent.IterativeParallelism;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frequent {@link IterativeParallelism#maximum} calls on small lists, where starting threads
+ * costs more than the work: new platform or virtual threads for every call, a mapper, or own pool
+ * of the {@link IterativeParallelism}, optionally running lists of up to {@value #INLINE_THRESHOLD} values inline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SmallListBenchmark {
+    private static final int INLINE_THRESHOLD = 64;
+
+    @Param({"PLATFORM", "VIRTUAL", "QUEUE", "STEALING", "VIRTUAL_MAPPER", "POOL", "POOL_INLINE"})
+    public String engine;
+
+    @Param({"4", "16"})
+    public int threads;
+
+    @Param({"16", "1024"})
+    public int size;
+
+    private ParallelMapper mapper;
+    private IterativeParallelism parallelism;
+    private List<Integer> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (engine) {
+            case "PLATFORM":
+                parallelism = new IterativeParallelism();
+                break;
+            case "VIRTUAL":
+                parallelism = IterativeParallelism.virtualThreads();
+                break;
+            case "POOL":
+                parallelism = IterativeParallelism.pooled(threads);
+                break;
+            case "POOL_INLINE":
+                parallelism = IterativeParallelism.pooled(threads).withInlineThreshold(INLINE_THRESHOLD);
+                break;
+            case "VIRTUAL_MAPPER":
+                mapper = Mappers.VIRTUAL.create(threads);
+                parallelism = new IterativeParallelism(mapper);
+                break;
+            default:
+                mapper = Mappers.valueOf(engine).create(threads);
+                parallelism = new IterativeParallelism(mapper);
+        }
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i * 31 % size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelism.close();
+        if (mapper != null) {
+            mapper.close();
+        }
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.naturalOrder());
+    }
+}
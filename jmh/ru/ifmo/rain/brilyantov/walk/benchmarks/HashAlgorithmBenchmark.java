@@ -0,0 +1,59 @@
+package ru.ifmo.rain.brilyantov.walk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.brilyantov.walk.HashAlgorithms;
+import ru.ifmo.rain.brilyantov.walk.HashCounter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of a single file by every {@link HashCounter} algorithm,
+ * reading the file through a direct buffer or mapping it into memory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HashAlgorithmBenchmark {
+    private static final long NEVER_MAP = Long.MAX_VALUE;
+
+    @Param({"0", "4096", "1048576", "268435456"})
+    public long size;
+
+    @Param({"fnv1-32", "fnv1a-64", "xxhash64", "crc32c"})
+    public String hash;
+
+    private Path file;
+    private HashCounter readingCounter;
+    private HashCounter mappingCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("hash-algorithm-benchmark", ".bin");
+        Trees.writeFile(file, size);
+        readingCounter = new HashCounter(HashAlgorithms.byName(hash), NEVER_MAP);
+        mappingCounter = new HashCounter(HashAlgorithms.byName(hash), 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long directBuffer(Throughput throughput) {
+        throughput.add(1, size);
+        return readingCounter.hash(file);
+    }
+
+    @Benchmark
+    public long mapped(Throughput throughput) {
+        throughput.add(1, size);
+        return mappingCounter.hash(file);
+    }
+}
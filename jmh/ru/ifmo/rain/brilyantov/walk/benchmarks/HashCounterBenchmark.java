@@ -0,0 +1,70 @@
+package ru.ifmo.rain.brilyantov.walk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.brilyantov.walk.HashCounter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FNV-1 hashing of a single file by {@link HashCounter#getFNV1Hash}, compared with
+ * the original stream-based implementation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HashCounterBenchmark {
+    @Param({"0", "4096", "1048576", "268435456"})
+    public long size;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("hash-benchmark", ".bin");
+        Trees.writeFile(file, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int getFNV1Hash(Throughput throughput) {
+        throughput.add(1, size);
+        return HashCounter.getFNV1Hash(file);
+    }
+
+    @Benchmark
+    public int stream(Throughput throughput) {
+        throughput.add(1, size);
+        return streamFNV1Hash(file);
+    }
+
+    /**
+     * FNV-1 hashing through a {@link FileInputStream} with 1 KiB buffer, as it was done before NIO backends.
+     */
+    private static int streamFNV1Hash(Path file) {
+        byte[] buffer = new byte[1024];
+        int hval = 0x811c9dc5;
+        try (InputStream inputStream = new FileInputStream(file.toString())) {
+            int sz;
+            while ((sz = inputStream.read(buffer, 0, 1024)) != -1) {
+                for (int i = 0; i < sz; i++) {
+                    hval = (hval * 0x01000193) ^ (buffer[i] & 0xff);
+                }
+            }
+        } catch (IOException e) {
+            hval = 0;
+        }
+        return hval;
+    }
+}
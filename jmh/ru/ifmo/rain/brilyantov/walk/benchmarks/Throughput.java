@@ -0,0 +1,28 @@
+package ru.ifmo.rain.brilyantov.walk.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results reported by JMH as rates, that is files/s and MB/s.
+ */
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class Throughput {
+    public long files;
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        files = 0;
+        megabytes = 0;
+    }
+
+    void add(long files, long bytes) {
+        this.files += files;
+        this.megabytes += bytes / 1e6;
+    }
+}
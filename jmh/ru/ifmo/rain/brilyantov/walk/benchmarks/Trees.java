@@ -0,0 +1,108 @@
+package ru.ifmo.rain.brilyantov.walk.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generated file trees for walk benchmarks. Trees are created once under
+ * {@code java.io.tmpdir/walk-benchmarks} and reused by later runs.
+ */
+public enum Trees {
+    WIDE {
+        @Override
+        void generate(Path root) throws IOException {
+            for (int i = 0; i < 10_000; i++) {
+                writeFile(root.resolve("file" + i), 4096);
+            }
+        }
+    },
+    DEEP {
+        @Override
+        void generate(Path root) throws IOException {
+            Path dir = root;
+            for (int depth = 0; depth < 200; depth++) {
+                dir = dir.resolve("level" + depth);
+                Files.createDirectories(dir);
+                for (int i = 0; i < 10; i++) {
+                    writeFile(dir.resolve("file" + i), 4096);
+                }
+            }
+        }
+    },
+    EMPTY {
+        @Override
+        void generate(Path root) throws IOException {
+            for (int i = 0; i < 20_000; i++) {
+                Files.createFile(root.resolve("empty" + i));
+            }
+        }
+    },
+    HUGE {
+        @Override
+        void generate(Path root) throws IOException {
+            for (int i = 0; i < 2; i++) {
+                writeFile(root.resolve("huge" + i), 2L << 30);
+            }
+        }
+    };
+
+    private static final Path BASE = Paths.get(System.getProperty("java.io.tmpdir"), "walk-benchmarks");
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    abstract void generate(Path root) throws IOException;
+
+    /**
+     * Returns root of the tree, generating it if it does not exist yet.
+     */
+    Path get() throws IOException {
+        Path root = BASE.resolve(name().toLowerCase());
+        Path complete = BASE.resolve(name().toLowerCase() + ".complete");
+        if (!Files.exists(complete)) {
+            clear(root);
+            Files.createDirectories(root);
+            generate(root);
+            Files.createFile(complete);
+        }
+        return root;
+    }
+
+    static void writeFile(Path file, long size) throws IOException {
+        Random random = new Random(size);
+        byte[] block = new byte[(int) Math.min(BLOCK_SIZE, size)];
+        random.nextBytes(block);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                output.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+
+    static void clear(Path root) throws IOException {
+        if (Files.exists(root)) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) walk.sorted((a, b) -> b.compareTo(a))::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns number of files and total number of bytes in the tree.
+     */
+    static long[] measure(Path root) throws IOException {
+        long[] filesAndBytes = new long[2];
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                filesAndBytes[0]++;
+                filesAndBytes[1] += Files.size(file);
+            }
+        }
+        return filesAndBytes;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.ifmo.rain.brilyantov.walk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.rain.brilyantov.walk.HashAlgorithm;
+import ru.ifmo.rain.brilyantov.walk.HashAlgorithms;
+import ru.ifmo.rain.brilyantov.walk.RecursiveWalk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link RecursiveWalk} runs over generated trees. The walk reports failures only in its output,
+ * so the output is checked after every iteration and a walk that failed on any file fails the benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class WalkBenchmark {
+    @Param({"WIDE", "DEEP", "EMPTY", "HUGE"})
+    public Trees tree;
+
+    @Param({"1", "4"})
+    public String threads;
+
+    @Param({"fnv1-32"})
+    public String hash;
+
+    private long files;
+    private long bytes;
+    private String[] args;
+    private Path input;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path root = tree.get();
+        long[] filesAndBytes = Trees.measure(root);
+        files = filesAndBytes[0];
+        bytes = filesAndBytes[1];
+        input = Files.createTempFile("walk-benchmark", ".in");
+        Files.write(input, Collections.singletonList(root.toString()), StandardCharsets.UTF_8);
+        output = Files.createTempFile("walk-benchmark", ".out");
+        args = new String[]{input.toString(), output.toString(), "-threads", threads, "-hash", hash};
+    }
+
+    /**
+     * @throws IllegalStateException if the last walk did not print every file or printed the hash of a failure
+     */
+    @TearDown(Level.Iteration)
+    public void checkOutput() throws IOException {
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        if (lines.size() != files) {
+            throw new IllegalStateException("walk printed " + lines.size() + " lines for " + files + " files");
+        }
+        HashAlgorithm algorithm = HashAlgorithms.byName(hash);
+        if (algorithm.newChecksum().getValue() != 0) {
+            String failure = String.join("", Collections.nCopies(algorithm.getWidth(), "0")) + " ";
+            for (String line : lines) {
+                if (line.startsWith(failure)) {
+                    throw new IllegalStateException("walk failed on " + line.substring(failure.length()));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(input);
+    }
+
+    @Benchmark
+    public void walk(Throughput throughput) {
+        RecursiveWalk.main(args);
+        throughput.add(files, bytes);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable view of consecutive parts as a single list. The parts are not copied,
+ * an element is found by binary search over offsets of the parts, so the view is assembled
+ * in time proportional to the number of parts.
+ */
+class ConcatenatedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<? extends List<? extends T>> parts;
+    private final int[] offsets;
+
+    /**
+     * @param parts random-access parts, which must not be changed afterwards
+     */
+    ConcatenatedList(List<? extends List<? extends T>> parts) {
+        this.parts = parts;
+        this.offsets = new int[parts.size() + 1];
+        for (int i = 0; i < parts.size(); i++) {
+            offsets[i + 1] = offsets[i] + parts.get(i).size();
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int part = Arrays.binarySearch(offsets, index);
+        if (part < 0) {
+            part = -part - 2;
+        } else {
+            while (offsets[part + 1] == index) {
+                part++;
+            }
+        }
+        return parts.get(part).get(index - offsets[part]);
+    }
+
+    @Override
+    public int size() {
+        return offsets[offsets.length - 1];
+    }
+}
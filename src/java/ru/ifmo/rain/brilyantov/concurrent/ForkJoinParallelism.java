@@ -0,0 +1,236 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import info.kgeorgiy.java.advanced.concurrent.ListIP;
+import info.kgeorgiy.java.advanced.concurrent.ScalarIP;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implementation of {@link ListIP} and {@link ScalarIP} on fork-join pools: spliterator of the values
+ * is split recursively by {@link Spliterator#trySplit()} into about {@value #SPLITS_PER_THREAD} leaves per thread,
+ * the suffix of every split is forked for idle workers to steal while the prefix is processed in place,
+ * and results of the leaves are reduced in the order of the values. Lists of the JDK split in halves,
+ * other lists split as well as their spliterators do.
+ * <p>
+ * By default every number of threads gets its own pool of that parallelism, created by the first call and
+ * living until the instance is closed. Pools are not capped, so an instance should be called with a few distinct
+ * numbers of threads. Workers of an idle pool terminate after the keep-alive time of {@link ForkJoinPool},
+ * so a pool costs no threads while it is not used. A pool passed to the constructor is used for all calls and
+ * is not shut down, the number of threads then only sets the number of leaves.
+ */
+public class ForkJoinParallelism implements ListIP, ScalarIP, AutoCloseable {
+    private static final int SPLITS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+    private boolean closed;
+
+    public ForkJoinParallelism() {
+        this(null);
+    }
+
+    public ForkJoinParallelism(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public String join(int threads, List<?> values) throws InterruptedException {
+        return runInParallel(
+                threads,
+                values,
+                list -> {
+                    StringBuilder partition = new StringBuilder();
+                    list.forEach(value -> partition.append(value.toString()));
+                    return partition;
+                },
+                IterativeParallelism::joinPartitions
+        );
+    }
+
+    @Override
+    public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        return runInParallel(
+                threads,
+                values,
+                list -> list.filter(predicate).collect(Collectors.<T>toList()),
+                this::merge
+        );
+    }
+
+    @Override
+    public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
+        return runInParallel(
+                threads,
+                values,
+                list -> list.map(f).collect(Collectors.<U>toList()),
+                this::merge
+        );
+    }
+
+    @Override
+    public <T> T maximum(int threads, List<? extends T> values, Comparator<? super T> comparator) throws InterruptedException {
+        return minimum(threads, values, comparator.reversed());
+    }
+
+    @Override
+    public <T> T minimum(int threads, List<? extends T> values, Comparator<? super T> comparator) throws InterruptedException {
+        return runInParallel(
+                threads,
+                values,
+                list -> list.min(comparator),
+                list -> list.filter(Optional::isPresent).map(Optional::get).min(comparator).get()
+        );
+    }
+
+    @Override
+    public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        return !anyMatch(threads, values, predicate.negate());
+    }
+
+    @Override
+    public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        return anyMatch(threads, values, predicate);
+    }
+
+    /**
+     * Checks whether any of the values matches the predicate. Leaves share a flag set by the first match,
+     * which is checked before every value, so running leaves stop and pending leaves are not split or tested.
+     */
+    private <T> boolean anyMatch(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        return run(threads, values, found, spliterator -> {
+            boolean[] matched = {false};
+            while (!found.get() && spliterator.tryAdvance(value -> matched[0] = predicate.test(value))) {
+                if (matched[0]) {
+                    found.set(true);
+                }
+            }
+            return null;
+        }, list -> found.get());
+    }
+
+    /**
+     * Concatenates results of leaves as a read-only view without copying them.
+     */
+    private <T> List<T> merge(Stream<? extends List<? extends T>> list) {
+        return new ConcatenatedList<>(list.collect(Collectors.toList()));
+    }
+
+    private <T, M, R> R runInParallel(
+            int threads,
+            List<? extends T> values,
+            Function<Stream<? extends T>, M> mapFunction,
+            Function<? super Stream<M>, R> reduceFunction
+    ) throws InterruptedException {
+        return run(
+                threads,
+                values,
+                new AtomicBoolean(),
+                spliterator -> mapFunction.apply(StreamSupport.stream(spliterator, false)),
+                reduceFunction
+        );
+    }
+
+    /**
+     * Runs the leaf function on every leaf of the values in the pool of {@code threads} and reduces
+     * the results in the order of the leaves. Leaves are not split or run once {@code done} is set.
+     */
+    private <T, M, R> R run(
+            int threads,
+            List<? extends T> values,
+            AtomicBoolean done,
+            Function<Spliterator<? extends T>, M> leaf,
+            Function<? super Stream<M>, R> reduceFunction
+    ) throws InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Expected > 0 number of threads, but found : " + threads);
+        }
+        long leafSize = Math.max(1, values.size() / ((long) threads * SPLITS_PER_THREAD));
+        ForkJoinTask<List<M>> task = pool(threads).submit(new SplitTask<>(values.spliterator(), leafSize, done, leaf));
+        try {
+            return reduceFunction.apply(task.get().stream());
+        } catch (InterruptedException e) {
+            done.set(true);
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Task splitting its spliterator in halves until at most {@code leafSize} values remain,
+     * returning results of the leaves in the order of the values.
+     */
+    private static class SplitTask<T, M> extends RecursiveTask<List<M>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<? extends T> spliterator;
+        private final long leafSize;
+        private final AtomicBoolean done;
+        private final Function<Spliterator<? extends T>, M> leaf;
+
+        SplitTask(
+                Spliterator<? extends T> spliterator,
+                long leafSize,
+                AtomicBoolean done,
+                Function<Spliterator<? extends T>, M> leaf
+        ) {
+            this.spliterator = spliterator;
+            this.leafSize = leafSize;
+            this.done = done;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected List<M> compute() {
+            if (done.get()) {
+                return Collections.emptyList();
+            }
+            Spliterator<? extends T> prefix;
+            if (spliterator.estimateSize() <= leafSize || (prefix = spliterator.trySplit()) == null) {
+                return Collections.singletonList(leaf.apply(spliterator));
+            }
+            SplitTask<T, M> left = new SplitTask<>(prefix, leafSize, done, leaf);
+            SplitTask<T, M> right = new SplitTask<>(spliterator, leafSize, done, leaf);
+            right.fork();
+            List<M> results = new ArrayList<>(left.compute());
+            results.addAll(right.join());
+            return results;
+        }
+    }
+
+    /**
+     * @return pool passed to the constructor or own pool of {@code threads} parallelism
+     */
+    private synchronized ForkJoinPool pool(int threads) {
+        if (pool != null) {
+            return pool;
+        }
+        if (closed) {
+            throw new IllegalStateException("ForkJoinParallelism is closed");
+        }
+        return pools.computeIfAbsent(threads, ForkJoinPool::new);
+    }
+
+    /**
+     * Stops own pools of this instance. Pool passed to the constructor is not shut down.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        pools.values().forEach(ForkJoinPool::shutdownNow);
+        pools.clear();
+    }
+}
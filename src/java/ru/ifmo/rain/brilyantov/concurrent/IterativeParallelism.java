@@ -5,44 +5,180 @@ import info.kgeorgiy.java.advanced.concurrent.ScalarIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class IterativeParallelism implements ListIP, ScalarIP {
+public class IterativeParallelism implements ListIP, ScalarIP, AutoCloseable {
+    private static final int CHECK_PERIOD = 1 << 10;
 
-    private ParallelMapper mapper;
+    private final ParallelMapper mapper;
+    private final ThreadFactory threadFactory;
+    private final int chunkSize;
+    private final boolean guided;
+    private final int inlineThreshold;
+    private final int poolThreads;
+    private volatile ParallelMapper pool;
+    private boolean closed;
 
-    public IterativeParallelism(ParallelMapper mapper) {
+    private IterativeParallelism(
+            ParallelMapper mapper,
+            ThreadFactory threadFactory,
+            int chunkSize,
+            boolean guided,
+            int inlineThreshold,
+            int poolThreads
+    ) {
         this.mapper = mapper;
+        this.threadFactory = threadFactory;
+        this.chunkSize = chunkSize;
+        this.guided = guided;
+        this.inlineThreshold = inlineThreshold;
+        this.poolThreads = poolThreads;
+    }
+
+    private IterativeParallelism(ParallelMapper mapper, ThreadFactory threadFactory) {
+        this(mapper, threadFactory, 0, false, -1, 0);
+    }
+
+    public IterativeParallelism(ParallelMapper mapper) {
+        this(mapper, Thread::new);
     }
 
     public IterativeParallelism() {
         this(null);
     }
 
-    private <T> List<T> merge(Stream<? extends Stream<? extends T>> list) {
-        return list.flatMap(Function.identity()).collect(Collectors.toList());
+    /**
+     * Creates an instance starting worker threads of every call by the factory instead of using a mapper.
+     * Execution is chosen only when an instance is created, so the factories of execution are static
+     * and are not named like the {@code with} methods, which keep the execution of the instance.
+     */
+    public static IterativeParallelism threadsOf(ThreadFactory threadFactory) {
+        return new IterativeParallelism(null, threadFactory);
+    }
+
+    /**
+     * Creates an instance running every call on new virtual threads, which are much cheaper to start
+     * than platform threads when calls are frequent and lists are small.
+     * Falls back to platform threads if virtual threads are not supported, see {@link VirtualThreads}.
+     */
+    public static IterativeParallelism virtualThreads() {
+        return threadsOf(VirtualThreads.factory());
+    }
+
+    /**
+     * Creates an instance running every call on its own pool of {@code poolThreads} threads, instead of starting
+     * threads for every call. The pool is created by the first call and lives until the instance is closed.
+     * Instances derived from this one by {@code with} methods own separate pools.
+     */
+    public static IterativeParallelism pooled(int poolThreads) {
+        if (poolThreads <= 0) {
+            throw new IllegalArgumentException("Expected > 0 number of threads, but found : " + poolThreads);
+        }
+        return new IterativeParallelism(null, Thread::new, 0, false, -1, poolThreads);
+    }
+
+    /**
+     * Returns an instance with the same execution, which processes lists of at most {@code size} values
+     * right in the calling thread, as dispatching small lists to other threads costs more than the work.
+     */
+    public IterativeParallelism withInlineThreshold(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Expected >= 0 inline threshold, but found : " + size);
+        }
+        return new IterativeParallelism(mapper, threadFactory, chunkSize, guided, size, poolThreads);
+    }
+
+    /**
+     * Returns an instance with the same execution, which splits values dynamically instead of
+     * into equal blocks: workers claim chunks of {@code chunkSize} values from a shared cursor
+     * until the values are exhausted, so a worker with cheap values takes more chunks.
+     */
+    public IterativeParallelism withDynamicPartitioning(int chunkSize) {
+        return new IterativeParallelism(
+                mapper, threadFactory, checkChunkSize(chunkSize), false, inlineThreshold, poolThreads
+        );
+    }
+
+    /**
+     * Returns an instance with the same execution, which splits values dynamically into guided chunks:
+     * every chunk takes a half of the values remaining per worker, but at least {@code minChunkSize} values,
+     * so chunks are large at first and get smaller to balance the end of a call.
+     */
+    public IterativeParallelism withGuidedPartitioning(int minChunkSize) {
+        return new IterativeParallelism(
+                mapper, threadFactory, checkChunkSize(minChunkSize), true, inlineThreshold, poolThreads
+        );
     }
 
+    private static int checkChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Expected > 0 chunk size, but found : " + chunkSize);
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Concatenates results of partitions as a read-only view without copying them.
+     */
+    private <T> List<T> merge(Stream<? extends List<? extends T>> list) {
+        return new ConcatenatedList<>(list.collect(Collectors.toList()));
+    }
+
+    /**
+     * Joins string representations of the values without intermediate strings: every partition is appended
+     * to its own builder, then the builders are copied to a single builder of the exact result length.
+     * Builders keep Latin-1 text compact, so it is copied as bytes and never grows the result.
+     * Every partition is released once it is copied, so at most about twice the result is held at a time.
+     */
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
         return runInParallel(
                 threads,
                 values,
-                list -> list.map(Object::toString).collect(Collectors.joining()),
-                list -> list.collect(Collectors.joining())
+                list -> {
+                    StringBuilder partition = new StringBuilder();
+                    list.forEach(value -> partition.append(value.toString()));
+                    return partition;
+                },
+                IterativeParallelism::joinPartitions
         );
     }
 
+    /**
+     * Copies the partitions in their order to a builder of the exact result length, releasing every partition
+     * once it is copied.
+     */
+    static String joinPartitions(Stream<StringBuilder> list) {
+        List<StringBuilder> partitions = list.collect(Collectors.toList());
+        long length = 0;
+        for (StringBuilder partition : partitions) {
+            length += partition.length();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Joined string is too large: " + length + " chars");
+        }
+        StringBuilder result = new StringBuilder((int) length);
+        for (int i = 0; i < partitions.size(); i++) {
+            result.append(partitions.get(i));
+            partitions.set(i, null);
+        }
+        return result.toString();
+    }
+
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
         return runInParallel(
                 threads,
                 values,
-                list -> list.filter(predicate),
+                list -> list.filter(predicate).collect(Collectors.<T>toList()),
                 this::merge
         );
     }
@@ -52,7 +188,7 @@ public class IterativeParallelism implements ListIP, ScalarIP {
         return runInParallel(
                 threads,
                 values,
-                list -> list.map(f),
+                list -> list.map(f).collect(Collectors.<U>toList()),
                 this::merge
         );
     }
@@ -70,60 +206,259 @@ public class IterativeParallelism implements ListIP, ScalarIP {
 
     @Override
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return runInParallel(
-                threads,
-                values,
-                list -> list.allMatch(predicate),
-                list -> list.allMatch(Boolean::booleanValue)
-        );
+        return !anyMatch(threads, values, predicate.negate());
     }
 
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        return anyMatch(threads, values, predicate);
+    }
+
+    /**
+     * Reduces the values by an associative operator, {@code identity} must be its identity element.
+     */
+    public <T> T reduce(int threads, List<? extends T> values, T identity, BinaryOperator<T> operator) throws InterruptedException {
+        return mapReduce(threads, values, Function.identity(), identity, operator);
+    }
+
+    /**
+     * Maps the values and reduces the results by an associative operator,
+     * {@code identity} must be its identity element.
+     */
+    public <T, R> R mapReduce(
+            int threads,
+            List<? extends T> values,
+            Function<? super T, ? extends R> lift,
+            R identity,
+            BinaryOperator<R> operator
+    ) throws InterruptedException {
         return runInParallel(
                 threads,
                 values,
-                list -> list.anyMatch(predicate),
-                list -> list.anyMatch(Boolean::booleanValue)
+                list -> list.<R>map(lift).reduce(identity, operator),
+                list -> list.reduce(identity, operator)
         );
     }
 
+    /**
+     * Counts inclusive prefix sums of the values by an associative operator: element {@code i}
+     * of the result is the reduction of values {@code 0..i}. The first pass scans every partition
+     * on its own, then totals of the partitions are scanned sequentially and the second pass
+     * adds total of all preceding partitions to every element of a partition.
+     */
+    public <T> List<T> scan(int threads, List<? extends T> values, BinaryOperator<T> operator) throws InterruptedException {
+        final List<T> result = new ArrayList<>(Collections.nCopies(values.size(), null));
+        Map<Integer, T> offsets = runOnRanges(threads, values.size(), (from, to) -> {
+            Iterator<? extends T> iterator = values.subList(from, to).iterator();
+            T total = iterator.next();
+            result.set(from, total);
+            for (int i = from + 1; i < to; i++) {
+                total = operator.apply(total, iterator.next());
+                result.set(i, total);
+            }
+            return new Partial<>(from, total);
+        }, list -> {
+            Map<Integer, T> partitionOffsets = new HashMap<>();
+            Iterator<Partial<T>> partials = list.iterator();
+            if (partials.hasNext()) {
+                T offset = partials.next().value;
+                while (partials.hasNext()) {
+                    Partial<T> partial = partials.next();
+                    partitionOffsets.put(partial.from, offset);
+                    offset = operator.apply(offset, partial.value);
+                }
+            }
+            return partitionOffsets;
+        });
+        if (!offsets.isEmpty()) {
+            runOnRanges(threads, values.size(), (from, to) -> {
+                if (offsets.containsKey(from)) {
+                    T offset = offsets.get(from);
+                    for (int i = from; i < to; i++) {
+                        result.set(i, operator.apply(offset, result.get(i)));
+                    }
+                }
+                return null;
+            }, list -> null);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether any of the values matches the predicate. Workers share a flag, which is set by
+     * the first match and checked every {@value #CHECK_PERIOD} values, so all of them stop soon after it
+     * and workers started after it don't test any values.
+     */
+    private <T> boolean anyMatch(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        return runOnRanges(threads, values.size(), (from, to) -> {
+            int tested = 0;
+            for (T value : values.subList(from, to)) {
+                if (tested++ % CHECK_PERIOD == 0 && found.get()) {
+                    return false;
+                }
+                if (predicate.test(value)) {
+                    found.set(true);
+                    return true;
+                }
+            }
+            return false;
+        }, list -> found.get());
+    }
+
+    /**
+     * Task computing an intermediate value of the index range {@code [from, to)}.
+     */
+    interface RangeTask<M> {
+        M apply(int from, int to);
+    }
+
+    private static class Range {
+        final int from;
+        final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Intermediate value of the range starting at {@code from}.
+     */
+    private static class Partial<M> {
+        final int from;
+        final M value;
+
+        Partial(int from, M value) {
+            this.from = from;
+            this.value = value;
+        }
+    }
+
     private <T, M, R> R runInParallel(
             int threads,
             List<? extends T> values,
             Function<Stream<? extends T>, M> mapFunction,
             Function<? super Stream<M>, R> reduceFunction
     ) throws InterruptedException {
-        return reduceTask(
-                reduceFunction,
-                mapper != null
-                        ? mapper.map(mapFunction, partition(threads, values)).stream()
-                        : mapTask(mapFunction, partition(threads, values))
+        return runOnRanges(
+                threads,
+                values.size(),
+                (from, to) -> mapFunction.apply(values.subList(from, to).stream()),
+                reduceFunction
         );
     }
 
-    private <T> List<Stream<? extends T>> partition(int threads, List<? extends T> values) {
+    /**
+     * Splits indices {@code [0, size)} into contiguous ranges, runs the task on every range
+     * by at most {@code threads} workers in parallel and reduces the results in the order of ranges.
+     * Ranges depend only on the partitioning, the number of threads and the size, never on timing.
+     */
+    <M, R> R runOnRanges(
+            int threads,
+            int size,
+            RangeTask<M> task,
+            Function<? super Stream<M>, R> reduceFunction
+    ) throws InterruptedException {
         if (threads <= 0) {
             throw new IllegalArgumentException("Expected > 0 number of threads, but found : " + threads);
         }
-        List<Stream<? extends T>> partitionedList = new ArrayList<>();
-        int blockSize = values.size() / threads + (values.size() % threads != 0 ? 1 : 0);
-        for (int leftBound = 0; leftBound < values.size(); leftBound += blockSize) {
-            int rightBound = Math.min(leftBound + blockSize, values.size());
-            partitionedList.add(values.subList(leftBound, rightBound).stream());
+        if (size <= inlineThreshold) {
+            return reduceTask(reduceFunction, size == 0 ? Stream.empty() : Stream.of(task.apply(0, size)));
+        }
+        return reduceTask(
+                reduceFunction,
+                chunkSize > 0 ? runDynamic(threads, size, task) : runRanges(partition(threads, size), task)
+        );
+    }
+
+    private <M> Stream<M> runRanges(List<Range> ranges, RangeTask<M> task) throws InterruptedException {
+        ParallelMapper mapper = this.mapper != null ? this.mapper : pool();
+        return mapper != null
+                ? mapper.map(range -> task.apply(range.from, range.to), ranges).stream()
+                : mapTask(task, ranges);
+    }
+
+    /**
+     * @return own pool of this instance, created by the first call, or {@code null} if it has no pool
+     */
+    private ParallelMapper pool() {
+        if (poolThreads == 0) {
+            return null;
+        }
+        ParallelMapper result = pool;
+        if (result == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("IterativeParallelism is closed");
+                }
+                if (pool == null) {
+                    pool = new ParallelMapperImpl(poolThreads);
+                }
+                result = pool;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops own pool of this instance, if it was created. Mapper passed to the constructor is not closed.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Runs the task on chunks claimed by workers from a shared cursor, returning results in the order of chunks.
+     */
+    private <M> Stream<M> runDynamic(int threads, int size, RangeTask<M> task) throws InterruptedException {
+        int workers = (int) Math.min(threads, ((long) size + chunkSize - 1) / chunkSize);
+        AtomicInteger cursor = new AtomicInteger();
+        List<Range> workerRanges = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            workerRanges.add(new Range(i, i + 1));
+        }
+        List<Partial<M>> partials = runRanges(workerRanges, (worker, nextWorker) -> {
+            List<Partial<M>> claimed = new ArrayList<>();
+            while (true) {
+                int from = cursor.get();
+                if (from >= size) {
+                    return claimed;
+                }
+                int chunk = guided ? Math.max(chunkSize, (size - from) / (2 * workers)) : chunkSize;
+                int to = (int) Math.min(size, (long) from + chunk);
+                if (cursor.compareAndSet(from, to)) {
+                    claimed.add(new Partial<>(from, task.apply(from, to)));
+                }
+            }
+        }).flatMap(List::stream).sorted(Comparator.comparingInt(partial -> partial.from)).collect(Collectors.toList());
+        return partials.stream().map(partial -> partial.value);
+    }
+
+    private List<Range> partition(int threads, int size) {
+        List<Range> ranges = new ArrayList<>();
+        int blockSize = size / threads + (size % threads != 0 ? 1 : 0);
+        for (int leftBound = 0; leftBound < size; leftBound += blockSize) {
+            ranges.add(new Range(leftBound, Math.min(leftBound + blockSize, size)));
         }
-        return partitionedList;
+        return ranges;
     }
 
-    private <T, M> Stream<M> mapTask(
-            Function<Stream<? extends T>, M> mapper,
-            List<Stream<? extends T>> inputValues
+    private <M> Stream<M> mapTask(
+            RangeTask<M> task,
+            List<Range> ranges
     ) throws InterruptedException {
-        List<M> intermediateValues = new ArrayList<>(Collections.nCopies(inputValues.size(), null));
+        List<M> intermediateValues = new ArrayList<>(Collections.nCopies(ranges.size(), null));
         List<Thread> workingThreads = new ArrayList<>();
-        ParallelMapperImpl.startThreads(inputValues.size(), workingThreads, i -> () -> intermediateValues.set(
-                i, mapper.apply(inputValues.get(i))
-        ));
+        ParallelMapperImpl.startThreads(ranges.size(), workingThreads, i -> () -> intermediateValues.set(
+                i, task.apply(ranges.get(i).from, ranges.get(i).to)
+        ), threadFactory);
         ParallelMapperImpl.endThreads(workingThreads);
         return intermediateValues.stream();
     }
@@ -0,0 +1,41 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+/**
+ * Receiver of task events of a {@link ParallelMapperImpl}. Methods are called by threads
+ * submitting and running tasks, so they must be thread-safe and cheap.
+ */
+public interface MapperListener {
+    /**
+     * Called once by the mapper before its workers start.
+     *
+     * @param workers number of workers, which are numbered from {@code 0}
+     */
+    default void attached(int workers) {
+    }
+
+    /**
+     * Called for every task put to the queue, with {@code tasks} equal to {@code 1}. The queue lock is held,
+     * so the mapper is not able to take or queue other tasks in the meantime.
+     */
+    void submitted(int tasks);
+
+    /**
+     * Called when a worker has taken a task from the queue.
+     *
+     * @param waitNanos time the task spent in the queue
+     */
+    void started(int worker, long waitNanos);
+
+    /**
+     * Called when a worker has finished a task, successfully or not.
+     *
+     * @param runNanos time the task was running
+     */
+    void completed(int worker, long runNanos);
+
+    /**
+     * Called when the mapper is closed with tasks in the queue, which are dropped and never started.
+     */
+    default void aborted(int tasks) {
+    }
+}
@@ -0,0 +1,180 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener collecting metrics of a {@link ParallelMapperImpl}: task counts, queue depth,
+ * histograms of queue wait and run times with power-of-two buckets and busy ratio of every worker.
+ * Metrics listen to a single mapper, which sets the number of workers when it is created.
+ * Metrics may be registered as MXBean {@code ru.ifmo.rain.brilyantov.concurrent:type=ParallelMapper,name=<name>}.
+ */
+public class MapperMetrics implements MapperListener, MapperMetricsMXBean {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray runHistogram = new AtomicLongArray(BUCKETS);
+    private volatile AtomicLongArray busyNanos = new AtomicLongArray(0);
+    private final long start = System.nanoTime();
+    private boolean attached;
+    private ObjectName name;
+
+    /**
+     * @throws IllegalStateException if the metrics already listen to another mapper
+     */
+    @Override
+    public synchronized void attached(int workers) {
+        if (attached) {
+            throw new IllegalStateException("Metrics already listen to a mapper");
+        }
+        attached = true;
+        busyNanos = new AtomicLongArray(workers);
+    }
+
+    @Override
+    public void submitted(int tasks) {
+        submitted.add(tasks);
+        maxQueueDepth.accumulate(queueDepth.addAndGet(tasks));
+    }
+
+    @Override
+    public void started(int worker, long waitNanos) {
+        queueDepth.decrementAndGet();
+        waitHistogram.incrementAndGet(bucket(waitNanos));
+    }
+
+    @Override
+    public void completed(int worker, long runNanos) {
+        completed.increment();
+        runHistogram.incrementAndGet(bucket(runNanos));
+        busyNanos.addAndGet(worker, runNanos);
+    }
+
+    @Override
+    public void aborted(int tasks) {
+        aborted.add(tasks);
+        queueDepth.addAndGet(-tasks);
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * @return upper bound of the bucket containing the quantile, {@code 0} if there are no values
+     */
+    private static long quantile(AtomicLongArray histogram, double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen > 0 && seen >= quantile * total) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << (i + 1);
+            }
+        }
+        return 0;
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server.
+     */
+    public synchronized void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("ru.ifmo.rain.brilyantov.concurrent:type=ParallelMapper,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+    }
+
+    public synchronized void unregister() throws JMException {
+        if (name != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            name = null;
+        }
+    }
+
+    @Override
+    public long getSubmittedTasks() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getAbortedTasks() {
+        return aborted.sum();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public long[] getWaitHistogram() {
+        return toArray(waitHistogram);
+    }
+
+    @Override
+    public long[] getRunHistogram() {
+        return toArray(runHistogram);
+    }
+
+    @Override
+    public long getWaitNanosP50() {
+        return quantile(waitHistogram, 0.5);
+    }
+
+    @Override
+    public long getWaitNanosP99() {
+        return quantile(waitHistogram, 0.99);
+    }
+
+    @Override
+    public long getRunNanosP50() {
+        return quantile(runHistogram, 0.5);
+    }
+
+    @Override
+    public long getRunNanosP99() {
+        return quantile(runHistogram, 0.99);
+    }
+
+    @Override
+    public double[] getWorkerBusyRatio() {
+        double elapsed = System.nanoTime() - start;
+        AtomicLongArray busy = busyNanos;
+        double[] result = new double[busy.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = busy.get(i) / elapsed;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+/**
+ * Management interface of {@link MapperMetrics}.
+ */
+public interface MapperMetricsMXBean {
+    long getSubmittedTasks();
+
+    long getCompletedTasks();
+
+    /**
+     * @return number of queued tasks dropped by closing the mapper
+     */
+    long getAbortedTasks();
+
+    long getQueueDepth();
+
+    long getMaxQueueDepth();
+
+    /**
+     * @return number of tasks by queue wait time, element {@code i} counts times in {@code [2^i, 2^(i+1))} nanoseconds
+     */
+    long[] getWaitHistogram();
+
+    /**
+     * @return number of tasks by run time, element {@code i} counts times in {@code [2^i, 2^(i+1))} nanoseconds
+     */
+    long[] getRunHistogram();
+
+    long getWaitNanosP50();
+
+    long getWaitNanosP99();
+
+    long getRunNanosP50();
+
+    long getRunNanosP99();
+
+    /**
+     * @return part of time every worker spent running tasks since the metrics were created
+     */
+    double[] getWorkerBusyRatio();
+}
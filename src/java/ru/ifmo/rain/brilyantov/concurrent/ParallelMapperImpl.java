@@ -4,16 +4,63 @@ package ru.ifmo.rain.brilyantov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
+/**
+ * Parallel mapper with a fixed pool of threads. Tasks of every map call are queued in a lane of its priority,
+ * lanes of higher priority are served first, while calls in the same lane are served round-robin,
+ * a task of every call in turn, so a small call does not wait for all tasks of a large one.
+ * The number of queued tasks may be bounded, see {@link OverflowPolicy}. The bound counts tasks, not arguments:
+ * a call of any size is split into at most {@value #CHUNKS_PER_THREAD} tasks per thread and at most
+ * {@code capacity} tasks, so it always fits into the empty queue, while its arguments and results
+ * stay in the memory of the caller.
+ */
 public class ParallelMapperImpl implements ParallelMapper {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * What a map call does when there is no room for its tasks in the bounded queue.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Waits until workers take enough tasks from the queue.
+         */
+        BLOCK,
+        /**
+         * Throws {@link RejectedExecutionException} without queueing any of the tasks.
+         */
+        REJECT
+    }
 
     private List<Thread> threadPool = new ArrayList<>();
-    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final NavigableMap<Integer, Deque<Call>> lanes = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int queued;
+    private boolean closed;
+    private final MapperListener listener;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
 
     public static void startThreads(int threadCount, List<Thread> threads, Function<Integer, Runnable> taskGen) {
+        startThreads(threadCount, threads, taskGen, Thread::new);
+    }
+
+    public static void startThreads(
+            int threadCount,
+            List<Thread> threads,
+            Function<Integer, Runnable> taskGen,
+            ThreadFactory threadFactory
+    ) {
         for (int i = 0; i < threadCount; i++) {
-            Thread thread = new Thread(taskGen.apply(i));
+            Thread thread = threadFactory.newThread(taskGen.apply(i));
             threads.add(thread);
             thread.start();
         }
@@ -35,79 +82,315 @@ public class ParallelMapperImpl implements ParallelMapper {
         }
     }
 
-    public static class ReversedCounter {
-        private int value;
+    /**
+     * Queued tasks of a single map call, which is in its lane while it has queued tasks,
+     * and completion of the call, which its caller waits for.
+     */
+    private static class Call {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final AtomicInteger remaining;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
 
-        public ReversedCounter(int value) {
-            this.value = value;
+        Call(int tasks) {
+            remaining = new AtomicInteger(tasks);
         }
 
-        public void dec() {
-            value--;
+        /**
+         * Records the failure of the call, failures after the first one are suppressed by it.
+         */
+        void fail(Throwable e) {
+            if (!failure.compareAndSet(null, e) && failure.get() != e) {
+                failure.get().addSuppressed(e);
+            }
         }
 
-        public boolean isZero() {
-            return value == 0;
+        void completed() {
+            if (remaining.decrementAndGet() == 0) {
+                synchronized (this) {
+                    notify();
+                }
+            }
         }
 
-        public boolean decIsZero() {
-            dec();
-            return isZero();
+        /**
+         * Fails the call and completes its queued tasks without running them.
+         *
+         * @return number of dropped tasks
+         */
+        int abort(Throwable e) {
+            fail(e);
+            int dropped = 0;
+            while (tasks.poll() != null) {
+                completed();
+                dropped++;
+            }
+            return dropped;
+        }
+
+        void await() throws InterruptedException {
+            synchronized (this) {
+                while (remaining.get() != 0) {
+                    wait();
+                }
+            }
+        }
+    }
+
+    /**
+     * Task remembering when it was submitted, used only if there is a listener.
+     */
+    private class ListenedTask implements Runnable {
+        private final Runnable task;
+        private final long submitted = System.nanoTime();
+
+        ListenedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        /**
+         * Runs the task even if the listener fails, as the caller waits for the task to complete.
+         */
+        void run(int worker) {
+            long started = System.nanoTime();
+            try {
+                listener.started(worker, started - submitted);
+            } finally {
+                try {
+                    task.run();
+                } finally {
+                    listener.completed(worker, System.nanoTime() - started);
+                }
+            }
         }
     }
 
     public ParallelMapperImpl(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * @param listener receiver of task events, {@code null} not to collect them at all
+     */
+    public ParallelMapperImpl(int threads, MapperListener listener) {
+        this(threads, listener, Integer.MAX_VALUE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param listener       receiver of task events, {@code null} not to collect them at all
+     * @param capacity       maximal number of queued tasks of all calls, every call queues
+     *                       at most {@value #CHUNKS_PER_THREAD} tasks per thread and at most {@code capacity} tasks
+     * @param overflowPolicy what a call does if there is no room for its tasks
+     */
+    public ParallelMapperImpl(int threads, MapperListener listener, int capacity, OverflowPolicy overflowPolicy) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Expected > 0 number of threads, but found : " + threads);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Expected > 0 queue capacity, but found : " + capacity);
+        }
+        this.listener = listener;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        if (listener != null) {
+            listener.attached(threads);
+        }
         startThreads(threads, threadPool, (i) -> () -> {
             try {
                 while (!Thread.currentThread().isInterrupted()) {
-                    Runnable task;
-                    synchronized (tasks) {
-                        while (tasks.isEmpty()) {
-                            tasks.wait();
+                    Runnable task = take();
+                    try {
+                        if (listener != null) {
+                            ((ListenedTask) task).run(i);
+                        } else {
+                            task.run();
                         }
-                        task = tasks.poll();
+                    } catch (Throwable e) {
+                        // tasks record their own failures, so only a failing listener gets here
+                        Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
                     }
-                    task.run();
                 }
             } catch (InterruptedException ignored) {
             }
         });
     }
 
+    /**
+     * Takes the next task of the first call in the lane of the highest priority, moving the call to the end of its lane.
+     */
+    private Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queued == 0) {
+                notEmpty.await();
+            }
+            Map.Entry<Integer, Deque<Call>> lane = lanes.lastEntry();
+            Call call = lane.getValue().pollFirst();
+            Runnable task = call.tasks.poll();
+            if (!call.tasks.isEmpty()) {
+                lane.getValue().addLast(call);
+            } else if (lane.getValue().isEmpty()) {
+                lanes.remove(lane.getKey());
+            }
+            queued--;
+            notFull.signal();
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the task of the call, which is in its lane while it has queued tasks.
+     */
+    private void put(Call call, int priority, Runnable task) {
+        if (call.tasks.isEmpty()) {
+            lanes.computeIfAbsent(priority, p -> new ArrayDeque<>()).addLast(call);
+        }
+        call.tasks.add(listener != null ? new ListenedTask(task) : task);
+        queued++;
+        notEmpty.signal();
+        if (listener != null) {
+            listener.submitted(1);
+        }
+    }
+
+    /**
+     * Number of consecutive arguments mapped by a single task: large enough to make per-task
+     * overhead negligible, while every worker still gets {@value #CHUNKS_PER_THREAD} tasks to balance load.
+     * Tasks of a call never outnumber the capacity of the queue.
+     */
+    private int chunkSize(int size) {
+        int chunks = (int) Math.min((long) threadPool.size() * CHUNKS_PER_THREAD, capacity);
+        return Math.max(1, size / chunks + (size % chunks != 0 ? 1 : 0));
+    }
+
+    /**
+     * Maps the arguments by the pool threads. The first exception thrown by the function cancels
+     * the rest of this call: tasks of the call which have not finished yet skip their arguments.
+     * The exception is rethrown to the caller with exceptions thrown by other tasks in the meantime
+     * suppressed, while the pool threads keep serving other calls. A checked exception thrown
+     * by the function is rethrown wrapped in {@link IllegalStateException}.
+     * Interruption of the caller cancels the call as well.
+     *
+     * @throws IllegalStateException if the mapper is closed before the call completes
+     */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        return map(f, args, 0);
+    }
+
+    /**
+     * Maps the arguments like {@link #map(Function, List)}, with tasks queued in the lane of the priority.
+     * Tasks of higher priority are taken before any task of lower priority.
+     *
+     * @throws RejectedExecutionException if the queue is bounded, there is no room for the tasks
+     *                                    and the overflow policy is {@link OverflowPolicy#REJECT}
+     */
+    public <T, R> List<R> map(
+            Function<? super T, ? extends R> f,
+            List<? extends T> args,
+            int priority
+    ) throws InterruptedException {
         final List<R> mappedValues = new ArrayList<>(Collections.nCopies(args.size(), null));
-        final ReversedCounter cnt = new ReversedCounter(args.size());
-        synchronized (tasks) {
-            for (int i = 0; i < args.size(); i++) {
-                final int index = i;
-                tasks.add(() -> {
-                            mappedValues.set(index, f.apply(args.get(index)));
-                            synchronized (cnt) {
-                                if (cnt.decIsZero()) {
-                                    cnt.notify();
-                                }
-                            }
-                        }
+        final int chunkSize = chunkSize(args.size());
+        final int chunks = (args.size() + chunkSize - 1) / chunkSize;
+        final Call call = new Call(chunks);
+        lock.lockInterruptibly();
+        try {
+            if (closed) {
+                throw new IllegalStateException("ParallelMapperImpl is closed");
+            }
+            if (overflowPolicy == OverflowPolicy.REJECT && chunks > capacity - queued) {
+                throw new RejectedExecutionException(
+                        "No room for " + chunks + " tasks, " + queued + " of " + capacity + " tasks are queued"
                 );
-                tasks.notify();
             }
-        }
-        synchronized (cnt) {
-            while (!cnt.isZero()) {
-                cnt.wait();
+            for (int from = 0; from < args.size(); from += chunkSize) {
+                final int chunkFrom = from;
+                final int chunkTo = Math.min(from + chunkSize, args.size());
+                Runnable task = () -> {
+                    try {
+                        for (int i = chunkFrom; i < chunkTo && call.failure.get() == null; i++) {
+                            mappedValues.set(i, f.apply(args.get(i)));
+                        }
+                    } catch (Throwable e) {
+                        call.fail(e);
+                    } finally {
+                        call.completed();
+                    }
+                };
+                while (queued >= capacity) {
+                    notFull.await();
+                    if (closed) {
+                        throw new IllegalStateException("ParallelMapperImpl is closed");
+                    }
+                }
+                put(call, priority, task);
             }
+        } catch (InterruptedException e) {
+            call.failure.compareAndSet(null, e);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            call.await();
+        } catch (InterruptedException e) {
+            call.failure.compareAndSet(null, e);
+            throw e;
+        }
+        Throwable e = call.failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new IllegalStateException(e);
         }
         return mappedValues;
     }
 
+    /**
+     * Stops the pool threads. Tasks being run are completed, while queued tasks are dropped
+     * and reported to the listener as aborted, so calls in progress and later calls fail
+     * with {@link IllegalStateException}.
+     */
     @Override
     public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
         threadPool.forEach(Thread::interrupt);
         try {
             endThreads(threadPool);
         } catch (InterruptedException ignored) {
         }
+        lock.lock();
+        try {
+            for (Deque<Call> lane : lanes.values()) {
+                for (Call call : lane) {
+                    int dropped = call.abort(new IllegalStateException("ParallelMapperImpl is closed"));
+                    if (listener != null) {
+                        listener.aborted(dropped);
+                    }
+                }
+            }
+            lanes.clear();
+            queued = 0;
+        } finally {
+            lock.unlock();
+        }
     }
 
 }
@@ -0,0 +1,261 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parallel operations over {@code int}, {@code long} and {@code double} arrays without boxing elements.
+ * Arrays are split and scheduled exactly like lists of the underlying {@link IterativeParallelism},
+ * so it may use a mapper as well, only one intermediate value per range is boxed.
+ */
+public class PrimitiveParallelism {
+
+    private final IterativeParallelism parallelism;
+
+    public PrimitiveParallelism(IterativeParallelism parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public PrimitiveParallelism() {
+        this(new IterativeParallelism());
+    }
+
+    public int maximum(int threads, int[] values) throws InterruptedException {
+        requireNonEmpty(values.length);
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            int result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.max(result, values[i]);
+            }
+            return result;
+        }, list -> list.mapToInt(Integer::intValue).max().getAsInt());
+    }
+
+    public int minimum(int threads, int[] values) throws InterruptedException {
+        requireNonEmpty(values.length);
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            int result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.min(result, values[i]);
+            }
+            return result;
+        }, list -> list.mapToInt(Integer::intValue).min().getAsInt());
+    }
+
+    /**
+     * @return sum of the values, which can't overflow for arrays of {@code int}
+     */
+    public long sum(int threads, int[] values) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            long result = 0;
+            for (int i = from; i < to; i++) {
+                result += values[i];
+            }
+            return result;
+        }, list -> list.mapToLong(Long::longValue).sum());
+    }
+
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }, list -> list.mapToInt(Integer::intValue).sum());
+    }
+
+    public int[] filter(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            int[] result = new int[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result[size++] = values[i];
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }, list -> concat(list, int[]::new));
+    }
+
+    public int[] map(int threads, int[] values, IntUnaryOperator f) throws InterruptedException {
+        int[] result = new int[values.length];
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.applyAsInt(values[i]);
+            }
+            return null;
+        }, list -> result);
+    }
+
+    public long maximum(int threads, long[] values) throws InterruptedException {
+        requireNonEmpty(values.length);
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            long result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.max(result, values[i]);
+            }
+            return result;
+        }, list -> list.mapToLong(Long::longValue).max().getAsLong());
+    }
+
+    public long minimum(int threads, long[] values) throws InterruptedException {
+        requireNonEmpty(values.length);
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            long result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.min(result, values[i]);
+            }
+            return result;
+        }, list -> list.mapToLong(Long::longValue).min().getAsLong());
+    }
+
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            long result = 0;
+            for (int i = from; i < to; i++) {
+                result += values[i];
+            }
+            return result;
+        }, list -> list.mapToLong(Long::longValue).sum());
+    }
+
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }, list -> list.mapToInt(Integer::intValue).sum());
+    }
+
+    public long[] filter(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            long[] result = new long[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result[size++] = values[i];
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }, list -> concat(list, long[]::new));
+    }
+
+    public long[] map(int threads, long[] values, LongUnaryOperator f) throws InterruptedException {
+        long[] result = new long[values.length];
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.applyAsLong(values[i]);
+            }
+            return null;
+        }, list -> result);
+    }
+
+    /**
+     * @return maximum of the values, {@code NaN} if any of the values is {@code NaN}
+     */
+    public double maximum(int threads, double[] values) throws InterruptedException {
+        requireNonEmpty(values.length);
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            double result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.max(result, values[i]);
+            }
+            return result;
+        }, list -> list.mapToDouble(Double::doubleValue).reduce(Math::max).getAsDouble());
+    }
+
+    /**
+     * @return minimum of the values, {@code NaN} if any of the values is {@code NaN}
+     */
+    public double minimum(int threads, double[] values) throws InterruptedException {
+        requireNonEmpty(values.length);
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            double result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.min(result, values[i]);
+            }
+            return result;
+        }, list -> list.mapToDouble(Double::doubleValue).reduce(Math::min).getAsDouble());
+    }
+
+    /**
+     * @return sum of the values, added up range by range, so rounding depends on the number of threads
+     */
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            double result = 0;
+            for (int i = from; i < to; i++) {
+                result += values[i];
+            }
+            return result;
+        }, list -> list.mapToDouble(Double::doubleValue).reduce(0, Double::sum));
+    }
+
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result++;
+                }
+            }
+            return result;
+        }, list -> list.mapToInt(Integer::intValue).sum());
+    }
+
+    public double[] filter(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            double[] result = new double[to - from];
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    result[size++] = values[i];
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }, list -> concat(list, double[]::new));
+    }
+
+    public double[] map(int threads, double[] values, DoubleUnaryOperator f) throws InterruptedException {
+        double[] result = new double[values.length];
+        return parallelism.runOnRanges(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.applyAsDouble(values[i]);
+            }
+            return null;
+        }, list -> result);
+    }
+
+    /**
+     * Concatenates primitive arrays of the ranges in their order.
+     */
+    private static <A> A concat(Stream<A> list, IntFunction<A> newArray) {
+        List<A> parts = list.collect(Collectors.toList());
+        A result = newArray.apply(parts.stream().mapToInt(Array::getLength).sum());
+        int position = 0;
+        for (A part : parts) {
+            int length = Array.getLength(part);
+            System.arraycopy(part, 0, result, position, length);
+            position += length;
+        }
+        return result;
+    }
+
+    private static void requireNonEmpty(int length) {
+        if (length == 0) {
+            throw new NoSuchElementException("No value present");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Parallel mapper running every task on a new virtual thread of a virtual-thread-per-task executor,
+ * so it keeps no pool and map calls don't wait for each other. Arguments of a call are split into
+ * at most {@code threads} contiguous blocks, every block is mapped by its own task.
+ * Falls back to platform threads with a warning if virtual threads are not supported, see {@link VirtualThreads}.
+ * <p>
+ * Failures are handled like in {@link ParallelMapperImpl}: the first exception or error thrown by the function
+ * cancels the rest of the call and is rethrown to the caller with later ones suppressed.
+ */
+public class VirtualThreadParallelMapper implements ParallelMapper {
+
+    private final int threads;
+    private final ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+
+    public VirtualThreadParallelMapper(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Expected > 0 number of threads, but found : " + threads);
+        }
+        this.threads = threads;
+    }
+
+    @Override
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        final List<R> mappedValues = new ArrayList<>(Collections.nCopies(args.size(), null));
+        final int blocks = Math.min(threads, args.size());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<?>> tasks = new ArrayList<>(blocks);
+        for (int block = 0; block < blocks; block++) {
+            final int from = (int) ((long) args.size() * block / blocks);
+            final int to = (int) ((long) args.size() * (block + 1) / blocks);
+            tasks.add(executor.submit(() -> {
+                try {
+                    for (int i = from; i < to && failure.get() == null; i++) {
+                        mappedValues.set(i, f.apply(args.get(i)));
+                    }
+                } catch (RuntimeException | Error e) {
+                    if (!failure.compareAndSet(null, e) && failure.get() != e) {
+                        failure.get().addSuppressed(e);
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            tasks.forEach(task -> task.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return mappedValues;
+    }
+
+    /**
+     * Stops accepting map calls, calls in progress are completed.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+}
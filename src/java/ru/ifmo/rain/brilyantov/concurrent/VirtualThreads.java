@@ -0,0 +1,69 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Access to virtual threads of the running JVM. Virtual threads are looked up reflectively,
+ * so the code runs on JVMs without them, falling back to platform threads. The first fallback
+ * prints a warning to the standard error, so it doesn't go unnoticed.
+ */
+public final class VirtualThreads {
+    private static final ThreadFactory FACTORY = lookupFactory();
+    private static final AtomicBoolean warned = new AtomicBoolean();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * @return factory of virtual threads, or of platform threads if virtual threads are not supported
+     */
+    public static ThreadFactory factory() {
+        if (FACTORY != null) {
+            return FACTORY;
+        }
+        warnFallback();
+        return Thread::new;
+    }
+
+    /**
+     * @return executor starting a new virtual thread for every task,
+     * or a cached pool of platform threads if virtual threads are not supported
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (FACTORY != null) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return Executors.newCachedThreadPool(FACTORY);
+            }
+        }
+        warnFallback();
+        return Executors.newCachedThreadPool();
+    }
+
+    private static void warnFallback() {
+        if (warned.compareAndSet(false, true)) {
+            System.err.println("Virtual threads are not supported by Java "
+                    + System.getProperty("java.version") + ", platform threads are used instead");
+        }
+    }
+
+    private static ThreadFactory lookupFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ru.ifmo.rain.brilyantov.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Parallel mapper keeping tasks in lock-free per-worker deques instead of a single queue under a monitor.
+ * A map call splits its arguments into contiguous blocks, one for every worker, and puts every block
+ * to the deque of its worker as a few range tasks. Every worker takes tasks from the head
+ * of its own deque and steals from the tails of the other deques when its own one is empty.
+ * Idle workers are parked and unparked by map calls, and the caller is unparked by the last task of its call.
+ * <p>
+ * Failures are handled like in {@link ParallelMapperImpl}: the first exception or error thrown by the function
+ * cancels the rest of the call and is rethrown to the caller with later ones suppressed,
+ * while the workers keep serving other calls. Closing the mapper drops queued tasks,
+ * so calls in progress and later calls fail with {@link IllegalStateException}.
+ */
+public class WorkStealingParallelMapper implements ParallelMapper {
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    private final List<Thread> threadPool = new ArrayList<>();
+    private final List<Deque<Chunk>> deques = new ArrayList<>();
+    private final AtomicIntegerArray idle;
+    private volatile boolean closed;
+
+    /**
+     * Progress of a single map call, which its caller waits for.
+     */
+    private static class Call {
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger remaining;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Call(int arguments) {
+            remaining = new AtomicInteger(arguments);
+        }
+
+        void fail(Throwable e) {
+            if (!failure.compareAndSet(null, e) && failure.get() != e) {
+                failure.get().addSuppressed(e);
+            }
+        }
+
+        void completed(int arguments) {
+            if (remaining.addAndGet(-arguments) == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    /**
+     * Task mapping arguments {@code [from, to)} of a call.
+     */
+    private static class Chunk {
+        final Call call;
+        final int from;
+        final int to;
+        final Runnable work;
+
+        Chunk(Call call, int from, int to, Runnable work) {
+            this.call = call;
+            this.from = from;
+            this.to = to;
+            this.work = work;
+        }
+
+        void run() {
+            try {
+                work.run();
+            } catch (Throwable e) {
+                call.fail(e);
+            } finally {
+                call.completed(to - from);
+            }
+        }
+
+        /**
+         * Fails the call and completes the chunk without running it.
+         */
+        void abort() {
+            call.fail(new IllegalStateException("WorkStealingParallelMapper is closed"));
+            call.completed(to - from);
+        }
+    }
+
+    public WorkStealingParallelMapper(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Expected > 0 number of threads, but found : " + threads);
+        }
+        for (int i = 0; i < threads; i++) {
+            deques.add(new ConcurrentLinkedDeque<>());
+        }
+        idle = new AtomicIntegerArray(threads);
+        ParallelMapperImpl.startThreads(threads, threadPool, i -> () -> work(i));
+    }
+
+    private void work(int worker) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Chunk task = take(worker);
+            if (task == null) {
+                idle.set(worker, 1);
+                task = take(worker);
+                if (task == null) {
+                    LockSupport.park(this);
+                    idle.set(worker, 0);
+                    continue;
+                }
+                idle.set(worker, 0);
+            }
+            task.run();
+        }
+    }
+
+    private Chunk take(int worker) {
+        Chunk task = deques.get(worker).pollFirst();
+        for (int i = 1; task == null && i < deques.size(); i++) {
+            task = deques.get((worker + i) % deques.size()).pollLast();
+        }
+        return task;
+    }
+
+    /**
+     * @throws IllegalStateException if the mapper is closed before the call completes
+     */
+    @Override
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
+        final List<R> mappedValues = new ArrayList<>(Collections.nCopies(args.size(), null));
+        if (closed) {
+            throw new IllegalStateException("WorkStealingParallelMapper is closed");
+        }
+        if (args.isEmpty()) {
+            return mappedValues;
+        }
+        final Call call = new Call(args.size());
+        int workers = deques.size();
+        int chunk = Math.max(1, args.size() / (workers * CHUNKS_PER_WORKER));
+        for (int worker = 0; worker < workers; worker++) {
+            Deque<Chunk> deque = deques.get(worker);
+            int to = (int) ((long) args.size() * (worker + 1) / workers);
+            for (int i = (int) ((long) args.size() * worker / workers); i < to; i += chunk) {
+                final int from = i;
+                final int chunkTo = Math.min(to, i + chunk);
+                deque.addLast(new Chunk(call, from, chunkTo, () -> {
+                    for (int index = from; index < chunkTo && call.failure.get() == null; index++) {
+                        mappedValues.set(index, f.apply(args.get(index)));
+                    }
+                }));
+            }
+        }
+        if (closed) {
+            drain();
+        }
+        for (int worker = 0; worker < workers; worker++) {
+            if (idle.get(worker) == 1) {
+                LockSupport.unpark(threadPool.get(worker));
+            }
+        }
+        while (call.remaining.get() > 0) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                InterruptedException e = new InterruptedException();
+                call.failure.compareAndSet(null, e);
+                throw e;
+            }
+        }
+        Throwable e = call.failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new IllegalStateException(e);
+        }
+        return mappedValues;
+    }
+
+    /**
+     * Aborts all queued tasks. Every task is taken from its deque once, so it is either run or aborted.
+     */
+    private void drain() {
+        for (Deque<Chunk> deque : deques) {
+            Chunk task;
+            while ((task = deque.pollFirst()) != null) {
+                task.abort();
+            }
+        }
+    }
+
+    /**
+     * Stops the workers. Tasks being run are completed, while queued tasks are dropped,
+     * so calls in progress and later calls fail with {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        threadPool.forEach(Thread::interrupt);
+        try {
+            ParallelMapperImpl.endThreads(threadPool);
+        } catch (InterruptedException ignored) {
+        }
+        drain();
+    }
+
+}
@@ -0,0 +1,42 @@
+package ru.ifmo.rain.brilyantov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Downloads documents without blocking the calling thread.
+ */
+@FunctionalInterface
+public interface AsyncDownloader {
+    /**
+     * Starts download of the document by URL.
+     *
+     * @return future of the document, completed exceptionally by {@link IOException} if the download failed
+     */
+    CompletableFuture<Document> download(String url);
+
+    /**
+     * Adapts a blocking downloader, every download occupies a thread of the executor until it finishes.
+     */
+    static AsyncDownloader blocking(Downloader downloader, Executor executor) {
+        return url -> {
+            CompletableFuture<Document> document = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        document.complete(downloader.download(url));
+                    } catch (Throwable e) {
+                        document.completeExceptionally(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                document.completeExceptionally(e);
+            }
+            return document;
+        };
+    }
+}
@@ -0,0 +1,235 @@
+package ru.ifmo.rain.brilyantov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.*;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Crawler over an {@link AsyncDownloader}: downloads in flight hold no threads, so the number of concurrent
+ * downloads is limited only by {@code perHost}, while extractor threads extract links and start downloads
+ * queued for busy hosts. Pages are crawled level by level, so every page is reached by its shortest path
+ * and links of a page are followed as deep as the depth allows.
+ * <p>
+ * Blocking {@link Downloader} is adapted by {@link AsyncDownloader#blocking}, which runs every download
+ * on a thread of a pool of {@code downloaders} threads, like {@link WebCrawler} does.
+ */
+public class AsyncWebCrawler implements Crawler {
+
+    private final AsyncDownloader downloader;
+    private final ExecutorService downloadersPool;
+    private final ExecutorService extractorsPool;
+    private final int perHost;
+    private final Map<String, HostQueue> hosts = new ConcurrentHashMap<>();
+
+    public AsyncWebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this.downloadersPool = Executors.newFixedThreadPool(downloaders);
+        this.downloader = AsyncDownloader.blocking(downloader, downloadersPool);
+        this.extractorsPool = Executors.newFixedThreadPool(extractors);
+        this.perHost = perHost;
+    }
+
+    /**
+     * Creates a crawler over an asynchronous downloader, which is not closed by the crawler.
+     */
+    public AsyncWebCrawler(AsyncDownloader downloader, int extractors, int perHost) {
+        this.downloader = downloader;
+        this.downloadersPool = null;
+        this.extractorsPool = Executors.newFixedThreadPool(extractors);
+        this.perHost = perHost;
+    }
+
+    @Override
+    public Result download(String url, int depth) {
+        return download(url, depth, site -> true);
+    }
+
+    public Result download(String url, int depth, Predicate<String> filter) {
+        try {
+            return downloadAsync(url, depth, filter).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+    }
+
+    /**
+     * Starts crawling from the URL without blocking the calling thread.
+     *
+     * @return future of the result, completed exceptionally if the downloader or the filter failed
+     * other than by {@link IOException}
+     */
+    public CompletableFuture<Result> downloadAsync(String url, int depth, Predicate<String> filter) {
+        Crawl crawl = new Crawl(filter);
+        crawl.level(crawl.follow(url) ? Collections.singleton(url) : Collections.emptySet(), depth);
+        return crawl.result;
+    }
+
+    @Override
+    public void close() {
+        extractorsPool.shutdown();
+        if (downloadersPool != null) {
+            downloadersPool.shutdown();
+        }
+    }
+
+    private class Crawl {
+        final Predicate<String> filter;
+        final Set<String> visited = ConcurrentHashMap.newKeySet();
+        final Set<String> downloaded = ConcurrentHashMap.newKeySet();
+        final Map<String, IOException> errors = new ConcurrentHashMap<>();
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        Crawl(Predicate<String> filter) {
+            this.filter = filter;
+        }
+
+        boolean follow(String url) {
+            return filter.test(url) && visited.add(url);
+        }
+
+        /**
+         * Downloads pages of a level, the next level is started by the last finished page.
+         */
+        void level(Collection<String> urls, int depth) {
+            if (result.isDone()) {
+                return;
+            }
+            if (urls.isEmpty() || depth <= 0) {
+                result.complete(new Result(new ArrayList<>(downloaded), new HashMap<>(errors)));
+                return;
+            }
+            Set<String> next = ConcurrentHashMap.newKeySet();
+            AtomicInteger pending = new AtomicInteger(urls.size());
+            Runnable arrive = () -> {
+                if (pending.decrementAndGet() == 0) {
+                    level(next, depth - 1);
+                }
+            };
+            for (String url : urls) {
+                fetch(url, depth, next, arrive);
+            }
+        }
+
+        private void fetch(String url, int depth, Set<String> next, Runnable arrive) {
+            HostQueue host;
+            try {
+                host = hosts.computeIfAbsent(URLUtils.getHost(url), name -> new HostQueue());
+            } catch (MalformedURLException e) {
+                errors.put(url, e);
+                arrive.run();
+                return;
+            }
+            host.acquire(() -> start(url).whenComplete((document, e) -> {
+                host.release();
+                if (e != null) {
+                    failed(url, e);
+                    arrive.run();
+                } else if (depth == 1) {
+                    downloaded.add(url);
+                    arrive.run();
+                } else {
+                    execute(() -> extract(url, document, next), arrive);
+                }
+            }));
+        }
+
+        private CompletableFuture<Document> start(String url) {
+            try {
+                return downloader.download(url);
+            } catch (RuntimeException e) {
+                CompletableFuture<Document> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+
+        private void extract(String url, Document document, Set<String> next) {
+            try {
+                for (String link : document.extractLinks()) {
+                    if (follow(link)) {
+                        next.add(link);
+                    }
+                }
+                downloaded.add(url);
+            } catch (IOException e) {
+                errors.put(url, e);
+            }
+        }
+
+        /**
+         * Runs the task on an extractor thread, then arrives even if the task failed.
+         */
+        private void execute(Runnable task, Runnable arrive) {
+            try {
+                extractorsPool.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException | Error e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        arrive.run();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+                arrive.run();
+            }
+        }
+
+        private void failed(String url, Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                errors.put(url, (IOException) cause);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * Downloads of a host: at most {@code perHost} are in flight, the rest wait in the order they were started.
+     */
+    private class HostQueue {
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int active;
+
+        void acquire(Runnable download) {
+            synchronized (this) {
+                if (active >= perHost) {
+                    waiting.add(download);
+                    return;
+                }
+                active++;
+            }
+            download.run();
+        }
+
+        /**
+         * Frees a slot of the host, which is passed to the first waiting download. The download is started
+         * by an extractor thread, as downloads completing right away would otherwise nest in the stack.
+         */
+        void release() {
+            Runnable download;
+            synchronized (this) {
+                download = waiting.poll();
+                if (download == null) {
+                    active--;
+                    return;
+                }
+            }
+            try {
+                extractorsPool.execute(download);
+            } catch (RejectedExecutionException e) {
+                download.run();
+            }
+        }
+    }
+}
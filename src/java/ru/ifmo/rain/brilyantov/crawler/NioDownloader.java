@@ -0,0 +1,265 @@
+package ru.ifmo.rain.brilyantov.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Downloads documents by HTTP/1.0 over asynchronous socket channels. A download holds no thread while it
+ * connects, sends the request or waits for the response, so a few threads of the channel group serve
+ * thousands of concurrent downloads. Host names are resolved once per host by a separate pool,
+ * as resolution blocks, and failed resolutions are not retried.
+ * <p>
+ * Resolution, connection and every read and write fail with {@link SocketTimeoutException} after
+ * {@value #TIMEOUT_SECONDS} seconds. A timed out resolution still occupies its resolver thread until it returns.
+ * <p>
+ * Only {@code http} URLs are supported, redirects are not followed and a status other than 2xx fails
+ * the download. Responses are kept in memory, up to {@value #MAX_RESPONSE_SIZE} bytes, and the links
+ * are extracted from them by {@link URLUtils#extractLinks}.
+ */
+public class NioDownloader implements AsyncDownloader, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 12;
+    private static final int MAX_RESPONSE_SIZE = 1 << 24;
+    private static final int RESOLVER_THREADS = 4;
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int HTTP_PORT = 80;
+
+    private final AsynchronousChannelGroup group;
+    private final ExecutorService resolver = Executors.newFixedThreadPool(RESOLVER_THREADS);
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+    private final Map<String, CompletableFuture<InetAddress>> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads number of threads running completion handlers of all downloads
+     */
+    public NioDownloader(int threads) throws IOException {
+        group = AsynchronousChannelGroup.withFixedThreadPool(threads, Executors.defaultThreadFactory());
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public CompletableFuture<Document> download(String url) {
+        CompletableFuture<Document> document = new CompletableFuture<>();
+        try {
+            URI uri = URLUtils.getURI(url);
+            if (!"http".equalsIgnoreCase(uri.getScheme())) {
+                throw new IOException("Unsupported scheme of " + url);
+            }
+            if (uri.getHost() == null) {
+                throw new IOException("No host in " + url);
+            }
+            int port = uri.getPort() != -1 ? uri.getPort() : HTTP_PORT;
+            resolve(uri.getHost()).whenComplete((address, e) -> {
+                if (e != null) {
+                    document.completeExceptionally(e);
+                } else {
+                    new Exchange(uri, new InetSocketAddress(address, port), document).connect();
+                }
+            });
+        } catch (IOException e) {
+            document.completeExceptionally(e);
+        }
+        return document;
+    }
+
+    private CompletableFuture<InetAddress> resolve(String host) {
+        return addresses.computeIfAbsent(host, name -> {
+            CompletableFuture<InetAddress> address = new CompletableFuture<>();
+            Future<?> timeout = timer.schedule(
+                    () -> address.completeExceptionally(new SocketTimeoutException("Resolution of " + name + " timed out")),
+                    TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS
+            );
+            resolver.execute(() -> {
+                try {
+                    address.complete(InetAddress.getByName(name));
+                } catch (UnknownHostException e) {
+                    address.completeExceptionally(e);
+                } finally {
+                    timeout.cancel(false);
+                }
+            });
+            return address;
+        });
+    }
+
+    /**
+     * Closes all connections, downloads in progress fail.
+     */
+    @Override
+    public void close() {
+        resolver.shutdownNow();
+        timer.shutdownNow();
+        try {
+            group.shutdownNow();
+        } catch (IOException e) {
+            System.out.println("Failed to close connections (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Single request and response on its own connection, every step is started by completion of the previous one.
+     */
+    private class Exchange {
+        private final URI uri;
+        private final SocketAddress address;
+        private final CompletableFuture<Document> document;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ByteArrayOutputStream response = new ByteArrayOutputStream(BUFFER_SIZE);
+        private AsynchronousSocketChannel channel;
+        private Future<?> connectTimeout;
+
+        Exchange(URI uri, SocketAddress address, CompletableFuture<Document> document) {
+            this.uri = uri;
+            this.address = address;
+            this.document = document;
+        }
+
+        void connect() {
+            try {
+                channel = AsynchronousSocketChannel.open(group);
+                connectTimeout = timer.schedule(
+                        () -> fail(new SocketTimeoutException("Connection to " + address + " timed out")),
+                        TIMEOUT_SECONDS,
+                        TimeUnit.SECONDS
+                );
+                channel.connect(address, null, handler(ignored -> {
+                    connectTimeout.cancel(false);
+                    write(ByteBuffer.wrap(request()));
+                }));
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private byte[] request() {
+            String target = uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+            String host = uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+            return ("GET " + target + " HTTP/1.0\r\nHost: " + host + "\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private void write(ByteBuffer request) {
+            channel.write(request, TIMEOUT_SECONDS, TimeUnit.SECONDS, null, handler(written -> {
+                if (request.hasRemaining()) {
+                    write(request);
+                } else {
+                    read();
+                }
+            }));
+        }
+
+        private void read() {
+            buffer.clear();
+            channel.read(buffer, TIMEOUT_SECONDS, TimeUnit.SECONDS, null, handler(read -> {
+                if (read == -1) {
+                    finish();
+                    return;
+                }
+                response.write(buffer.array(), 0, buffer.position());
+                if (response.size() > MAX_RESPONSE_SIZE) {
+                    fail(new IOException("Response of " + uri + " is larger than " + MAX_RESPONSE_SIZE + " bytes"));
+                } else {
+                    read();
+                }
+            }));
+        }
+
+        private void finish() {
+            closeChannel();
+            byte[] bytes = response.toByteArray();
+            try {
+                int bodyStart = bodyStart(bytes);
+                document.complete(() -> URLUtils.extractLinks(
+                        uri,
+                        new ByteArrayInputStream(bytes, bodyStart, bytes.length - bodyStart)
+                ));
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Checks the status of the response.
+         *
+         * @return offset of the body in the response
+         * @throws IOException if the response is malformed or its status is not 2xx
+         */
+        private int bodyStart(byte[] bytes) throws IOException {
+            int statusEnd = indexOf(bytes, "\r\n");
+            int headersEnd = indexOf(bytes, "\r\n\r\n");
+            if (statusEnd == -1 || headersEnd == -1) {
+                throw new IOException("Malformed response of " + uri);
+            }
+            String[] status = new String(bytes, 0, statusEnd, StandardCharsets.US_ASCII).split(" ");
+            if (status.length < 2 || !status[0].startsWith("HTTP/") || !status[1].matches("\\d{3}")) {
+                throw new IOException("Malformed status line of " + uri);
+            }
+            if (status[1].charAt(0) != '2') {
+                throw new IOException("HTTP status " + status[1] + " of " + uri);
+            }
+            return headersEnd + 4;
+        }
+
+        private int indexOf(byte[] bytes, String delimiter) {
+            search:
+            for (int i = 0; i + delimiter.length() <= bytes.length; i++) {
+                for (int j = 0; j < delimiter.length(); j++) {
+                    if (bytes[i + j] != delimiter.charAt(j)) {
+                        continue search;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        private void fail(Throwable e) {
+            closeChannel();
+            document.completeExceptionally(e);
+        }
+
+        private void closeChannel() {
+            if (connectTimeout != null) {
+                connectTimeout.cancel(false);
+            }
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+                // Response is complete or already failed
+            }
+        }
+
+        private <V> CompletionHandler<V, Void> handler(Consumer<V> next) {
+            return new CompletionHandler<V, Void>() {
+                @Override
+                public void completed(V result, Void attachment) {
+                    try {
+                        next.accept(result);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable e, Void attachment) {
+                    fail(e);
+                }
+            };
+        }
+    }
+}
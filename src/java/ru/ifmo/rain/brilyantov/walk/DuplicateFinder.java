@@ -0,0 +1,204 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds groups of files with equal contents. Files are grouped by size first,
+ * only files sharing their size with another file are hashed, and files with
+ * equal hashes are compared byte by byte before they are reported.
+ * <p>
+ * Every group is written as {@code <hash> <path>} lines in the order the files
+ * were discovered, groups are ordered by their first file and separated by empty lines.
+ * A file reached by several roots is reported once, by the path it was discovered first,
+ * as files are identified by their file keys, so hard links of a file count as the file itself.
+ * Files without a key are identified by their normalized absolute paths.
+ */
+class DuplicateFinder {
+    private static final int COMPARE_BLOCK_SIZE = 1 << 16;
+
+    private static class FileRecord {
+        final Path file;
+        final long size;
+        final int order;
+        long hash;
+
+        FileRecord(Path file, long size, int order) {
+            this.file = file;
+            this.size = size;
+            this.order = order;
+        }
+    }
+
+    private final WalkOptions options;
+    private final WalkMetrics metrics;
+    private final ThreadLocal<FileHasher> counters;
+    private final ThreadLocal<ByteBuffer[]> compareBuffers = ThreadLocal.withInitial(() -> new ByteBuffer[]{
+            ByteBuffer.allocate(COMPARE_BLOCK_SIZE),
+            ByteBuffer.allocate(COMPARE_BLOCK_SIZE)
+    });
+
+    DuplicateFinder(WalkOptions options, WalkMetrics metrics) {
+        this.options = options;
+        this.metrics = metrics;
+        this.counters = ThreadLocal.withInitial(() -> RecursiveWalk.newHasher(options, metrics));
+    }
+
+    void find(BufferedReader input, HashWriter output) throws IOException, InterruptedException {
+        Map<Long, List<FileRecord>> bySize = new HashMap<>();
+        Set<Object> discovered = new HashSet<>();
+        int[] order = {0};
+        RecursiveWalk.walkRoots(input, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                metrics.fileVisited();
+                if (attrs.isRegularFile() && discovered.add(identity(file, attrs))) {
+                    bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>())
+                            .add(new FileRecord(file, attrs.size(), order[0]++));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                metrics.failed(WalkMetrics.Failure.VISIT);
+                return FileVisitResult.CONTINUE;
+            }
+        }, metrics);
+        List<List<FileRecord>> candidates = new ArrayList<>();
+        for (List<FileRecord> sameSize : bySize.values()) {
+            if (sameSize.size() > 1) {
+                candidates.add(sameSize);
+            }
+        }
+        bySize.clear();
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<List<List<FileRecord>>>> results = new ArrayList<>();
+            for (List<FileRecord> sameSize : candidates) {
+                results.add(pool.submit(() -> duplicates(sameSize)));
+            }
+            List<List<FileRecord>> groups = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    groups.addAll(results.get(i).get());
+                } catch (ExecutionException e) {
+                    metrics.failed(WalkMetrics.Failure.READ);
+                    System.out.println("failed to find duplicates of " + candidates.get(i).get(0).file
+                            + " (" + e.getCause() + ")");
+                }
+            }
+            groups.sort(Comparator.comparingInt(group -> group.get(0).order));
+            write(groups, output);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Object identity(Path file, BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return key != null ? key : file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Splits files of the same size into groups of files with equal contents.
+     * Empty files are equal without reading them, their hash is the hash of empty input.
+     */
+    private List<List<FileRecord>> duplicates(List<FileRecord> sameSize) {
+        if (sameSize.get(0).size == 0) {
+            long hash = options.algorithm.newChecksum().getValue();
+            sameSize.forEach(record -> record.hash = hash);
+            return Collections.singletonList(sameSize);
+        }
+        Map<Long, List<FileRecord>> byHash = new LinkedHashMap<>();
+        for (FileRecord record : sameSize) {
+            record.hash = hash(record);
+            byHash.computeIfAbsent(record.hash, hash -> new ArrayList<>()).add(record);
+        }
+        List<List<FileRecord>> groups = new ArrayList<>();
+        for (List<FileRecord> sameHash : byHash.values()) {
+            while (sameHash.size() > 1) {
+                FileRecord first = sameHash.get(0);
+                List<FileRecord> equal = new ArrayList<>();
+                List<FileRecord> rest = new ArrayList<>();
+                equal.add(first);
+                for (FileRecord record : sameHash.subList(1, sameHash.size())) {
+                    (sameContent(first.file, record.file) ? equal : rest).add(record);
+                }
+                if (equal.size() > 1) {
+                    groups.add(equal);
+                }
+                sameHash = rest;
+            }
+        }
+        return groups;
+    }
+
+    private long hash(FileRecord record) {
+        try {
+            return counters.get().hashFile(record.file);
+        } catch (IOException e) {
+            metrics.failed(WalkMetrics.Failure.READ);
+            return 0;
+        }
+    }
+
+    private boolean sameContent(Path a, Path b) {
+        ByteBuffer[] buffers = compareBuffers.get();
+        try (
+                FileChannel first = FileChannel.open(a, StandardOpenOption.READ);
+                FileChannel second = FileChannel.open(b, StandardOpenOption.READ)
+        ) {
+            while (true) {
+                int read = readFully(first, buffers[0]);
+                if (read != readFully(second, buffers[1])) {
+                    return false;
+                }
+                if (read == 0) {
+                    return true;
+                }
+                if (!buffers[0].equals(buffers[1])) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            metrics.failed(WalkMetrics.Failure.READ);
+            System.out.println("failed to compare files " + a + " and " + b + " (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining();
+    }
+
+    private static void write(List<List<FileRecord>> groups, HashWriter output) throws IOException {
+        boolean first = true;
+        for (List<FileRecord> group : groups) {
+            if (!first) {
+                output.writeLine();
+            }
+            first = false;
+            for (FileRecord record : group) {
+                output.write(record.hash, record.file.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+interface FileHasher {
+    /**
+     * Counts hash of the file.
+     *
+     * @throws IOException if the file can't be read
+     */
+    long hashFile(Path file) throws IOException;
+
+    /**
+     * Counts hash of the file.
+     *
+     * @return hash of the file or {@code 0} if it can't be read
+     */
+    long hash(Path file);
+}
@@ -0,0 +1,24 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.util.zip.Checksum;
+
+/**
+ * Hash algorithm used by {@link HashCounter}. Hash values are accumulated
+ * by {@link Checksum checksums}, so JDK checksums can be plugged in directly.
+ */
+public interface HashAlgorithm {
+    /**
+     * Returns name of the algorithm used to select it from command line.
+     */
+    String getName();
+
+    /**
+     * Returns number of hexadecimal digits in the printed hash.
+     */
+    int getWidth();
+
+    /**
+     * Creates new checksum in its initial state.
+     */
+    Checksum newChecksum();
+}
@@ -0,0 +1,293 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+public final class HashAlgorithms {
+    public static final HashAlgorithm FNV1_32 = algorithm("fnv1-32", 8, Fnv1Checksum::new);
+    public static final HashAlgorithm FNV1A_64 = algorithm("fnv1a-64", 16, Fnv1a64Checksum::new);
+    public static final HashAlgorithm XXHASH_64 = algorithm("xxhash64", 16, XxHash64Checksum::new);
+    public static final HashAlgorithm CRC32C = algorithm("crc32c", 8, CRC32C::new);
+
+    private static final Map<String, HashAlgorithm> ALGORITHMS = new LinkedHashMap<>();
+
+    static {
+        for (HashAlgorithm algorithm : Arrays.asList(FNV1_32, FNV1A_64, XXHASH_64, CRC32C)) {
+            ALGORITHMS.put(algorithm.getName(), algorithm);
+        }
+    }
+
+    private HashAlgorithms() {
+    }
+
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(ALGORITHMS.keySet());
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no algorithm with such name
+     */
+    public static HashAlgorithm byName(String name) {
+        HashAlgorithm algorithm = ALGORITHMS.get(name);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("unknown hash algorithm " + name + ", expected one of " + names());
+        }
+        return algorithm;
+    }
+
+    private static HashAlgorithm algorithm(String name, int width, Supplier<Checksum> checksums) {
+        return new HashAlgorithm() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public Checksum newChecksum() {
+                return checksums.get();
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    private static class Fnv1Checksum implements Checksum {
+        private static final int FNV_PRIME = 0x01000193;
+        private static final int FNV_START = 0x811c9dc5;
+        private static final int FNV_AND = (1 << 8) - 1;
+
+        private int hval = FNV_START;
+
+        @Override
+        public void update(int b) {
+            hval = (hval * FNV_PRIME) ^ (b & FNV_AND);
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            int h = hval;
+            for (int i = off; i < off + len; i++) {
+                h = (h * FNV_PRIME) ^ (b[i] & FNV_AND);
+            }
+            hval = h;
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            int h = hval;
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                h = (h * FNV_PRIME) ^ (buffer.get(i) & FNV_AND);
+            }
+            hval = h;
+            buffer.position(buffer.limit());
+        }
+
+        @Override
+        public long getValue() {
+            return hval & 0xffffffffL;
+        }
+
+        @Override
+        public void reset() {
+            hval = FNV_START;
+        }
+    }
+
+    private static class Fnv1a64Checksum implements Checksum {
+        private static final long FNV_PRIME = 0x100000001b3L;
+        private static final long FNV_START = 0xcbf29ce484222325L;
+
+        private long hval = FNV_START;
+
+        @Override
+        public void update(int b) {
+            hval = (hval ^ (b & 0xff)) * FNV_PRIME;
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            long h = hval;
+            for (int i = off; i < off + len; i++) {
+                h = (h ^ (b[i] & 0xff)) * FNV_PRIME;
+            }
+            hval = h;
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            long h = hval;
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                h = (h ^ (buffer.get(i) & 0xff)) * FNV_PRIME;
+            }
+            hval = h;
+            buffer.position(buffer.limit());
+        }
+
+        @Override
+        public long getValue() {
+            return hval;
+        }
+
+        @Override
+        public void reset() {
+            hval = FNV_START;
+        }
+    }
+
+    /**
+     * Streaming xxHash64 with zero seed, consuming input in 32-byte stripes of four 8-byte lanes.
+     */
+    private static class XxHash64Checksum implements Checksum {
+        private static final long PRIME1 = 0x9E3779B185EBCA87L;
+        private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long PRIME3 = 0x165667B19E3779F9L;
+        private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+        private static final long PRIME5 = 0x27D4EB2F165667C5L;
+        private static final int STRIPE = 32;
+        private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+        private final byte[] pending = new byte[STRIPE];
+        private int pendingSize;
+        private long totalLength;
+        private long v1, v2, v3, v4;
+
+        XxHash64Checksum() {
+            reset();
+        }
+
+        @Override
+        public void update(int b) {
+            pending[pendingSize++] = (byte) b;
+            totalLength++;
+            if (pendingSize == STRIPE) {
+                stripe(pending, 0);
+                pendingSize = 0;
+            }
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            totalLength += len;
+            int end = off + len;
+            if (pendingSize > 0) {
+                int fill = Math.min(STRIPE - pendingSize, len);
+                System.arraycopy(b, off, pending, pendingSize, fill);
+                pendingSize += fill;
+                off += fill;
+                if (pendingSize < STRIPE) {
+                    return;
+                }
+                stripe(pending, 0);
+                pendingSize = 0;
+            }
+            for (; off + STRIPE <= end; off += STRIPE) {
+                stripe(b, off);
+            }
+            System.arraycopy(b, off, pending, 0, end - off);
+            pendingSize = end - off;
+        }
+
+        /**
+         * Consumes the buffer by absolute reads, so direct and mapped buffers are hashed in place.
+         */
+        @Override
+        public void update(ByteBuffer buffer) {
+            ByteBuffer bytes = buffer.order() == ByteOrder.LITTLE_ENDIAN
+                    ? buffer
+                    : buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int off = buffer.position();
+            int end = buffer.limit();
+            totalLength += end - off;
+            if (pendingSize > 0) {
+                for (; off < end && pendingSize < STRIPE; off++) {
+                    pending[pendingSize++] = bytes.get(off);
+                }
+                if (pendingSize < STRIPE) {
+                    buffer.position(end);
+                    return;
+                }
+                stripe(pending, 0);
+                pendingSize = 0;
+            }
+            for (; off + STRIPE <= end; off += STRIPE) {
+                v1 = round(v1, bytes.getLong(off));
+                v2 = round(v2, bytes.getLong(off + 8));
+                v3 = round(v3, bytes.getLong(off + 16));
+                v4 = round(v4, bytes.getLong(off + 24));
+            }
+            for (; off < end; off++) {
+                pending[pendingSize++] = bytes.get(off);
+            }
+            buffer.position(end);
+        }
+
+        private void stripe(byte[] b, int off) {
+            v1 = round(v1, (long) LONGS.get(b, off));
+            v2 = round(v2, (long) LONGS.get(b, off + 8));
+            v3 = round(v3, (long) LONGS.get(b, off + 16));
+            v4 = round(v4, (long) LONGS.get(b, off + 24));
+        }
+
+        private static long round(long acc, long input) {
+            return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+        }
+
+        private static long merge(long acc, long value) {
+            return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+        }
+
+        @Override
+        public long getValue() {
+            long h;
+            if (totalLength >= STRIPE) {
+                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                h = merge(merge(merge(merge(h, v1), v2), v3), v4);
+            } else {
+                h = PRIME5;
+            }
+            h += totalLength;
+            int i = 0;
+            for (; i + 8 <= pendingSize; i += 8) {
+                h = Long.rotateLeft(h ^ round(0, (long) LONGS.get(pending, i)), 27) * PRIME1 + PRIME4;
+            }
+            if (i + 4 <= pendingSize) {
+                h = Long.rotateLeft(h ^ (((int) INTS.get(pending, i)) & 0xffffffffL) * PRIME1, 23) * PRIME2 + PRIME3;
+                i += 4;
+            }
+            for (; i < pendingSize; i++) {
+                h = Long.rotateLeft(h ^ (pending[i] & 0xff) * PRIME5, 11) * PRIME1;
+            }
+            h ^= h >>> 33;
+            h *= PRIME2;
+            h ^= h >>> 29;
+            h *= PRIME3;
+            h ^= h >>> 32;
+            return h;
+        }
+
+        @Override
+        public void reset() {
+            v1 = PRIME1 + PRIME2;
+            v2 = PRIME2;
+            v3 = 0;
+            v4 = -PRIME1;
+            totalLength = 0;
+            pendingSize = 0;
+        }
+    }
+}
@@ -1,29 +1,119 @@
 package ru.ifmo.rain.brilyantov.walk;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+import java.util.zip.Checksum;
 
-public class HashCounter {
-    private static final int FNV_PRIME = 0x01000193;
-    private static final int FNV_START = 0x811c9dc5;
-    private static final int FNV_AND = (1 << 8) - 1;
-    private static byte[] buffer = new byte[1024];
+/**
+ * Counts hashes of files, FNV-1 by default. Every instance owns its buffer and reuses it
+ * for all files it hashes, so an instance must not be shared between threads,
+ * while different instances may be used concurrently.
+ * <p>
+ * Bytes are hashed right from the direct buffer or the mapped region, without copying them to the heap,
+ * in blocks of {@value #BLOCK_SIZE} bytes, and every hashed block is reported to the progress consumer.
+ * Mapped regions are unmapped only when they are garbage collected, so regions of recently hashed files,
+ * up to {@value #MAP_REGION_SIZE} bytes each, may stay mapped until the next collection.
+ */
+public class HashCounter implements FileHasher {
+    public static final long DEFAULT_MAP_THRESHOLD = 1 << 22;
+
+    private static final int BLOCK_SIZE = 1 << 17;
+    private static final long MAP_REGION_SIZE = 1 << 28;
+    private static final ThreadLocal<HashCounter> counters = ThreadLocal.withInitial(HashCounter::new);
+
+    private final HashAlgorithm algorithm;
+    private final Checksum checksum;
+    private final long mapThreshold;
+    private final LongConsumer progress;
+    private final ByteBuffer directBuffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+
+    public HashCounter() {
+        this(HashAlgorithms.FNV1_32, DEFAULT_MAP_THRESHOLD);
+    }
+
+    public HashCounter(long mapThreshold) {
+        this(HashAlgorithms.FNV1_32, mapThreshold);
+    }
+
+    /**
+     * @param mapThreshold size starting from which files are mapped into memory
+     *                     instead of being read through a direct buffer
+     */
+    public HashCounter(HashAlgorithm algorithm, long mapThreshold) {
+        this(algorithm, mapThreshold, bytes -> {});
+    }
+
+    /**
+     * @param progress consumer of the number of bytes in every hashed block
+     */
+    public HashCounter(HashAlgorithm algorithm, long mapThreshold, LongConsumer progress) {
+        this.algorithm = algorithm;
+        this.checksum = algorithm.newChecksum();
+        this.mapThreshold = mapThreshold;
+        this.progress = progress;
+    }
 
     public static int getFNV1Hash(Path file) {
-        int hval = FNV_START;
-        try (InputStream inputStream = new FileInputStream(file.toString())) {
-            int sz;
-            while ((sz = inputStream.read(buffer, 0, 1024)) != -1) {
-                for (int i = 0; i < sz; i++) {
-                    hval = (hval * FNV_PRIME)^ (buffer[i] & FNV_AND);
-                }
-            }
+        return (int) counters.get().hash(file);
+    }
+
+    public HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public long hash(Path file) {
+        try {
+            return hashFile(file);
         } catch (IOException e) {
-            hval = 0;
+            return 0;
+        }
+    }
+
+    @Override
+    public long hashFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return size >= mapThreshold ? hashMapped(channel, size) : hashRead(channel);
+        }
+    }
+
+    private long hashRead(FileChannel channel) throws IOException {
+        checksum.reset();
+        directBuffer.clear();
+        while (channel.read(directBuffer) != -1) {
+            directBuffer.flip();
+            update(directBuffer);
+            directBuffer.clear();
+        }
+        return checksum.getValue();
+    }
+
+    private long hashMapped(FileChannel channel, long size) throws IOException {
+        checksum.reset();
+        for (long position = 0; position < size; position += MAP_REGION_SIZE) {
+            MappedByteBuffer region = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    position,
+                    Math.min(MAP_REGION_SIZE, size - position)
+            );
+            update(region);
+        }
+        return checksum.getValue();
+    }
+
+    private void update(ByteBuffer bytes) {
+        int end = bytes.limit();
+        for (int position = bytes.position(); position < end; position = bytes.limit()) {
+            bytes.limit(Math.min(end, position + BLOCK_SIZE));
+            checksum.update(bytes);
+            progress.accept(bytes.limit() - position);
         }
-        return hval;
     }
 
 }
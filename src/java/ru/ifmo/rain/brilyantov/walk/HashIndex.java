@@ -0,0 +1,189 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes of the previous walks, keyed by path and validated by size, modification time
+ * and file key (device and inode on Unix), so unchanged files are not read again.
+ * <p>
+ * The index file is a big-endian binary file: magic {@code RWIX} and format version as ints,
+ * name of the hashing (see {@link WalkOptions#hashName()}) as an int length and UTF-8 bytes, entry count as an int,
+ * followed by the entries. Every entry is a path as an int length and UTF-8 bytes,
+ * then size and modification time in nanoseconds as longs, file key as an int length and UTF-8 bytes
+ * of its string form (empty if the file system has no keys) and the hash as a long.
+ * <p>
+ * The file is read through a memory mapping, but all of its entries are loaded into a hash map,
+ * so memory of the index grows with the number of entries. After every walk the file is rewritten
+ * with the entries of that walk merged into the loaded ones, so walking a part of the files keeps
+ * entries of the rest. Entries of deleted files are kept too, until the index file is removed.
+ */
+class HashIndex {
+    private static final int MAGIC = 0x52574958;
+    private static final int VERSION = 3;
+
+    private static class Entry {
+        final long size;
+        final long modified;
+        final String fileKey;
+        final long hash;
+
+        Entry(long size, long modified, String fileKey, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        Entry(BasicFileAttributes attrs, long hash) {
+            this(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKey(attrs), hash);
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKey(attrs));
+        }
+
+        private static String fileKey(BasicFileAttributes attrs) {
+            return attrs.fileKey() != null ? attrs.fileKey().toString() : "";
+        }
+    }
+
+    private final String hashName;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private HashIndex(String hashName, Map<String, Entry> previous) {
+        this.hashName = hashName;
+        this.previous = previous;
+    }
+
+    static HashIndex empty(String hashName) {
+        return new HashIndex(hashName, new HashMap<>());
+    }
+
+    /**
+     * Loads index of the hashes with the given name from the file, returning an empty index if the file does not exist.
+     *
+     * @throws IOException if the file can't be read, is not a valid index or was built by another hashing
+     */
+    static HashIndex load(Path file, String hashName) throws IOException {
+        if (!Files.exists(file)) {
+            return empty(hashName);
+        }
+        Map<String, Entry> entries = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("index file is too large: " + channel.size() + " bytes");
+            }
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (bytes.getInt() != MAGIC || bytes.getInt() != VERSION) {
+                throw new IOException("not a walk index file of version " + VERSION);
+            }
+            byte[] buffer = new byte[1 << 12];
+            String indexHashName = readString(bytes, buffer);
+            if (!indexHashName.equals(hashName)) {
+                throw new IOException("index was built by " + indexHashName + " hashing");
+            }
+            int count = bytes.getInt();
+            for (int i = 0; i < count; i++) {
+                entries.put(
+                        readString(bytes, buffer),
+                        new Entry(bytes.getLong(), bytes.getLong(), readString(bytes, buffer), bytes.getLong())
+                );
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("unexpected end of index file");
+        }
+        return new HashIndex(hashName, entries);
+    }
+
+    private static String readString(ByteBuffer bytes, byte[] buffer) throws IOException {
+        int length = bytes.getInt();
+        if (length < 0 || length > bytes.remaining()) {
+            throw new IOException("corrupted index file");
+        }
+        if (length > buffer.length) {
+            buffer = new byte[length];
+        }
+        bytes.get(buffer, 0, length);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Returns hash of the file from the previous walk if the file did not change since it,
+     * keeping it for the next walk.
+     *
+     * @return cached hash or {@code null} if the file has to be hashed again
+     */
+    Long cached(Path file, BasicFileAttributes attrs) {
+        String path = file.toString();
+        Entry entry = previous.get(path);
+        if (entry == null || !entry.matches(attrs)) {
+            return null;
+        }
+        current.put(path, entry);
+        return entry.hash;
+    }
+
+    /**
+     * Records hash of the file for the next walk. Zero hashes are not recorded,
+     * as they also denote files that failed to be read.
+     */
+    void update(Path file, BasicFileAttributes attrs, long hash) {
+        if (hash != 0) {
+            current.put(file.toString(), new Entry(attrs, hash));
+        }
+    }
+
+    /**
+     * Writes hashes recorded by this walk and the loaded hashes of files it did not record
+     * to the file, replacing it atomically where possible.
+     */
+    void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp),
+                    1 << 16
+            ))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                writeString(output, hashName);
+                Map<String, Entry> merged = new HashMap<>(previous);
+                merged.putAll(current);
+                output.writeInt(merged.size());
+                for (Map.Entry<String, Entry> entry : merged.entrySet()) {
+                    writeString(output, entry.getKey());
+                    output.writeLong(entry.getValue().size);
+                    output.writeLong(entry.getValue().modified);
+                    writeString(output, entry.getValue().fileKey);
+                    output.writeLong(entry.getValue().hash);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes walk output lines {@code <hash> <path>} without formatting: hashes are
+ * encoded to zero-padded hex digits straight into a large reusable buffer,
+ * which is passed to the underlying writer only when it is full.
+ */
+class HashWriter implements Closeable {
+    private static final int CAPACITY = 1 << 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer writer;
+    private final int width;
+    private final char[] buffer = new char[CAPACITY];
+    private int size;
+
+    /**
+     * @param width number of hex digits printed for every hash
+     */
+    HashWriter(Writer writer, int width) {
+        this.writer = writer;
+        this.width = width;
+    }
+
+    void write(long hash, String path) throws IOException {
+        ensureCapacity(width + 1);
+        for (int i = size + width - 1; i >= size; i--) {
+            buffer[i] = HEX_DIGITS[(int) hash & 0xf];
+            hash >>>= 4;
+        }
+        size += width;
+        buffer[size++] = ' ';
+        write(path);
+        write(LINE_SEPARATOR);
+    }
+
+    void writeLine() throws IOException {
+        write(LINE_SEPARATOR);
+    }
+
+    private void write(String string) throws IOException {
+        if (string.length() > buffer.length) {
+            flushBuffer();
+            writer.write(string);
+            return;
+        }
+        ensureCapacity(string.length());
+        string.getChars(0, string.length(), buffer, size);
+        size += string.length();
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (size + length > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writer.write(buffer, 0, size);
+        size = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            writer.close();
+        }
+    }
+}
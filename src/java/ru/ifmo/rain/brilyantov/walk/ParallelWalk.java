@@ -0,0 +1,105 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.*;
+
+/**
+ * Two-stage walk: a single discovering thread walks the roots in input order,
+ * while a pool of hashers counts hashes of the discovered files.
+ * Both stages are connected by a bounded queue of pending hashes, so
+ * the discovering thread never runs too far ahead of the output.
+ */
+class ParallelWalk {
+    private static final int QUEUE_CAPACITY = 1 << 12;
+
+    private static class PendingHash {
+        final Path file;
+        final Future<Long> hash;
+
+        PendingHash(Path file, Future<Long> hash) {
+            this.file = file;
+            this.hash = hash;
+        }
+    }
+
+    private static final PendingHash END = new PendingHash(null, null);
+
+    static void walk(
+            BufferedReader input,
+            HashWriter output,
+            WalkOptions options,
+            HashIndex index,
+            WalkMetrics metrics
+    ) throws IOException, InterruptedException {
+        BlockingQueue<PendingHash> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        ExecutorService hashers = Executors.newFixedThreadPool(options.threads);
+        ThreadLocal<FileHasher> counters = ThreadLocal.withInitial(() -> RecursiveWalk.newHasher(options, metrics));
+        IOException[] inputError = {null};
+        Thread discoverer = new Thread(() -> {
+            try {
+                RecursiveWalk.walkRoots(input, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        Long cached = RecursiveWalk.cached(index, file, attrs, metrics);
+                        return enqueue(file, cached != null
+                                ? CompletableFuture.completedFuture(cached)
+                                : hashers.submit(() -> RecursiveWalk.hash(counters.get(), index, file, attrs, metrics))
+                        );
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        metrics.failed(WalkMetrics.Failure.VISIT);
+                        return enqueue(file, CompletableFuture.completedFuture(0L));
+                    }
+
+                    private FileVisitResult enqueue(Path file, Future<Long> hash) {
+                        try {
+                            pending.put(new PendingHash(file, hash));
+                            return FileVisitResult.CONTINUE;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return FileVisitResult.TERMINATE;
+                        }
+                    }
+                }, metrics);
+            } catch (IOException e) {
+                inputError[0] = e;
+            } finally {
+                try {
+                    pending.put(END);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        discoverer.start();
+        try {
+            PendingHash next;
+            while ((next = pending.take()) != END) {
+                RecursiveWalk.printHash(output, getHash(next, metrics), next.file, metrics);
+            }
+        } finally {
+            discoverer.interrupt();
+            hashers.shutdownNow();
+            discoverer.join();
+        }
+        if (inputError[0] != null) {
+            throw inputError[0];
+        }
+    }
+
+    private static long getHash(PendingHash pendingHash, WalkMetrics metrics) throws InterruptedException {
+        try {
+            return pendingHash.hash.get();
+        } catch (ExecutionException e) {
+            metrics.failed(WalkMetrics.Failure.READ);
+            System.out.println("failed to count hash of file " + pendingHash.file + " (" + e.getCause() + ")");
+            return 0;
+        }
+    }
+}
@@ -4,16 +4,21 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ForkJoinPool;
 
 public class RecursiveWalk {
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.out.println("expected exactly 2 not-null program arguments (input path, output path)");
+        WalkOptions options;
+        try {
+            options = WalkOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(WalkOptions.USAGE);
             return;
         }
         try {
-            Paths.get(args[0]);
-            Path out = Paths.get(args[1]);
+            Paths.get(options.input);
+            Path out = Paths.get(options.output);
             Path par = out.getParent();
             if (par != null)
                 Files.createDirectories(par);
@@ -22,51 +27,142 @@ public class RecursiveWalk {
         } catch (InvalidPathException e) {
             System.out.println("input paths are not paths (" + e.getMessage() + ")");
         }
+        HashIndex index = options.index != null ? loadIndex(options.index, options.hashName()) : null;
         try (
+                WalkMetrics metrics = WalkMetrics.start(options.progress);
                 BufferedReader input = new BufferedReader(new InputStreamReader(
-                        new FileInputStream(args[0]),
+                        new FileInputStream(options.input),
                         StandardCharsets.UTF_8
                 ));
-                PrintWriter output = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
-                        new FileOutputStream(args[1]),
+                HashWriter output = new HashWriter(new OutputStreamWriter(
+                        new FileOutputStream(options.output),
                         StandardCharsets.UTF_8
-                )))
+                ), options.algorithm.getWidth())
         ) {
-            final int[] line = {0};
-            input.lines().forEach(curPath -> {
-                line[0]++;
-                try {
-                    Files.walkFileTree(Paths.get(curPath), new SimpleFileVisitor<Path>() {
-                        @Override
-                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                            output.printf(
-                                    "%08x %s" + System.lineSeparator(),
-                                    HashCounter.getFNV1Hash(file),
-                                    file.toString()
-                            );
-                            if (output.checkError()) {
-                                System.out.println("Output failed");
-                            }
-                            return FileVisitResult.CONTINUE;
-                        }
-
-                        @Override
-                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                            output.printf("%08x %s" + System.lineSeparator(), 0, file.toString());
-                            if (output.checkError()) {
-                                System.out.println("Output failed");
-                            }
-                            return FileVisitResult.CONTINUE;
-                        }
-                    });
-                } catch (IOException | SecurityException e) {
-                    System.out.println("failed to read file from file " + curPath + " at line " + line[0]);
-                } catch (InvalidPathException e) {
-                    System.out.println("invalid path (at file " + curPath + " on line " + line[0] + ")");
-                }
-            });
+            if (options.dedup) {
+                new DuplicateFinder(options, metrics).find(input, output);
+            } else if (options.threads > 1) {
+                ParallelWalk.walk(input, output, options, index, metrics);
+            } else {
+                walk(input, output, options, index, metrics);
+            }
+            if (index != null) {
+                saveIndex(index, options.index);
+            }
         } catch (IOException | SecurityException e) {
             System.out.println("Failed to open input/output files" + e.getMessage() + ")");
+        } catch (InterruptedException e) {
+            System.out.println("Walk was interrupted");
+        }
+    }
+
+    private static HashIndex loadIndex(String file, String hashName) {
+        try {
+            return HashIndex.load(Paths.get(file), hashName);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Failed to load hash index, all files will be hashed (" + e.getMessage() + ")");
+            return HashIndex.empty(hashName);
+        }
+    }
+
+    private static void saveIndex(HashIndex index, String file) {
+        try {
+            index.save(Paths.get(file));
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Failed to save hash index (" + e.getMessage() + ")");
+        }
+    }
+
+    private static void walk(
+            BufferedReader input,
+            HashWriter output,
+            WalkOptions options,
+            HashIndex index,
+            WalkMetrics metrics
+    ) throws IOException {
+        FileHasher counter = newHasher(options, metrics);
+        walkRoots(input, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Long cached = cached(index, file, attrs, metrics);
+                long hash = cached != null ? cached : hash(counter, index, file, attrs, metrics);
+                printHash(output, hash, file, metrics);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                metrics.failed(WalkMetrics.Failure.VISIT);
+                printHash(output, 0, file, metrics);
+                return FileVisitResult.CONTINUE;
+            }
+        }, metrics);
+    }
+
+    static void walkRoots(BufferedReader input, FileVisitor<Path> visitor, WalkMetrics metrics) throws IOException {
+        int line = 0;
+        String curPath;
+        while (!Thread.currentThread().isInterrupted() && (curPath = input.readLine()) != null) {
+            line++;
+            metrics.rootStarted(curPath);
+            try {
+                Files.walkFileTree(Paths.get(curPath), visitor);
+            } catch (IOException | SecurityException e) {
+                metrics.failed(WalkMetrics.Failure.ROOT);
+                System.out.println("failed to read file from file " + curPath + " at line " + line);
+            } catch (InvalidPathException e) {
+                metrics.failed(WalkMetrics.Failure.INVALID_ROOT);
+                System.out.println("invalid path (at file " + curPath + " on line " + line + ")");
+            } finally {
+                metrics.rootFinished();
+            }
+        }
+    }
+
+    /**
+     * Creates hasher of the walk, which is a tree hasher over the common pool if tree hashes are requested.
+     * Hashed bytes are counted by the metrics as they are read.
+     */
+    static FileHasher newHasher(WalkOptions options, WalkMetrics metrics) {
+        return options.treeChunk > 0
+                ? new TreeHashCounter(options.algorithm, options.treeChunk, ForkJoinPool.commonPool(), metrics::bytesHashed)
+                : new HashCounter(options.algorithm, options.mapThreshold, metrics::bytesHashed);
+    }
+
+    /**
+     * Returns hash of the file from the index if the file did not change since the previous walk.
+     *
+     * @return cached hash or {@code null} if the file has to be hashed
+     */
+    static Long cached(HashIndex index, Path file, BasicFileAttributes attrs, WalkMetrics metrics) {
+        metrics.fileVisited();
+        Long cached = index != null ? index.cached(file, attrs) : null;
+        if (cached != null) {
+            metrics.fileCached();
+        }
+        return cached;
+    }
+
+    static long hash(FileHasher counter, HashIndex index, Path file, BasicFileAttributes attrs, WalkMetrics metrics) {
+        long hash;
+        try {
+            hash = counter.hashFile(file);
+        } catch (IOException e) {
+            metrics.failed(WalkMetrics.Failure.READ);
+            hash = 0;
+        }
+        if (index != null) {
+            index.update(file, attrs, hash);
+        }
+        return hash;
+    }
+
+    static void printHash(HashWriter output, long hash, Path file, WalkMetrics metrics) {
+        try {
+            output.write(hash, file.toString());
+        } catch (IOException e) {
+            metrics.failed(WalkMetrics.Failure.OUTPUT);
+            System.out.println("Output failed");
         }
     }
 }
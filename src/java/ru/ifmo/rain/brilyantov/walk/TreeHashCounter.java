@@ -0,0 +1,165 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+import java.util.zip.Checksum;
+
+/**
+ * Counts tree hashes of files, hashing fixed-size chunks of a file in parallel.
+ * <p>
+ * The file is split into chunks of {@code chunkSize} bytes, the last chunk may be shorter.
+ * Hash of a single chunk is the hash of its bytes by the algorithm, so files not longer than
+ * one chunk have the same hash as in the plain mode. Hash of chunks {@code [from, to)} is
+ * the hash of the concatenated hashes of chunks {@code [from, mid)} and {@code [mid, to)},
+ * where {@code mid = (from + to) / 2} and every hash is written big-endian in
+ * {@code width / 2} bytes. An empty file is a single empty chunk.
+ * <p>
+ * Subtrees of at most {@value #BLOCK_SIZE} bytes are read by a single read and hashed sequentially
+ * by a single task, so small chunks produce neither a task nor a read per chunk.
+ */
+class TreeHashCounter implements FileHasher {
+    private static final int BLOCK_SIZE = 1 << 17;
+    private static final ThreadLocal<ByteBuffer> directBuffers = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocateDirect(BLOCK_SIZE)
+    );
+
+    private final HashAlgorithm algorithm;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    private final LongConsumer progress;
+
+    /**
+     * @param progress consumer of the number of bytes in every read, called concurrently by the pool workers
+     */
+    TreeHashCounter(HashAlgorithm algorithm, long chunkSize, ForkJoinPool pool, LongConsumer progress) {
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.progress = progress;
+    }
+
+    @Override
+    public long hash(Path file) {
+        try {
+            return hashFile(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public long hashFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            return chunks == 1 ? hashChunk(channel, 0, size) : pool.invoke(new ChunksTask(channel, size, 0, chunks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ChunksTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final long from;
+        private final long to;
+
+        ChunksTask(FileChannel channel, long size, long from, long to) {
+            this.channel = channel;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            try {
+                if ((to - from) * chunkSize <= BLOCK_SIZE) {
+                    return hashBlock(channel, size, from, to);
+                }
+                if (to - from == 1) {
+                    return hashChunk(channel, from * chunkSize, Math.min(size, to * chunkSize));
+                }
+                long mid = (from + to) / 2;
+                ChunksTask left = new ChunksTask(channel, size, from, mid);
+                left.fork();
+                long right = new ChunksTask(channel, size, mid, to).compute();
+                return combine(left.join(), right);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Hashes chunks {@code [from, to)}, which fit the buffer, reading all of them at once.
+     */
+    private long hashBlock(FileChannel channel, long size, long from, long to) throws IOException {
+        long start = from * chunkSize;
+        ByteBuffer block = directBuffers.get();
+        block.clear();
+        block.limit((int) (Math.min(size, to * chunkSize) - start));
+        while (block.hasRemaining()) {
+            if (channel.read(block, start + block.position()) == -1) {
+                break;
+            }
+        }
+        block.flip();
+        progress.accept(block.remaining());
+        return hashBuffered(block, start, from, to);
+    }
+
+    private long hashBuffered(ByteBuffer block, long start, long from, long to) {
+        if (to - from == 1) {
+            ByteBuffer chunk = block.duplicate();
+            chunk.limit((int) Math.min(block.limit(), to * chunkSize - start));
+            chunk.position((int) Math.min(chunk.limit(), from * chunkSize - start));
+            Checksum checksum = algorithm.newChecksum();
+            checksum.update(chunk);
+            return checksum.getValue();
+        }
+        long mid = (from + to) / 2;
+        return combine(hashBuffered(block, start, from, mid), hashBuffered(block, start, mid, to));
+    }
+
+    private long hashChunk(FileChannel channel, long from, long to) throws IOException {
+        Checksum checksum = algorithm.newChecksum();
+        ByteBuffer directBuffer = directBuffers.get();
+        for (long position = from; position < to; ) {
+            directBuffer.clear();
+            directBuffer.limit((int) Math.min(directBuffer.capacity(), to - position));
+            int read = channel.read(directBuffer, position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            directBuffer.flip();
+            checksum.update(directBuffer);
+            progress.accept(read);
+        }
+        return checksum.getValue();
+    }
+
+    private long combine(long left, long right) {
+        int bytes = algorithm.getWidth() / 2;
+        byte[] pair = new byte[2 * bytes];
+        for (int i = bytes - 1; i >= 0; i--) {
+            pair[i] = (byte) left;
+            pair[bytes + i] = (byte) right;
+            left >>>= 8;
+            right >>>= 8;
+        }
+        Checksum checksum = algorithm.newChecksum();
+        checksum.update(pair, 0, pair.length);
+        return checksum.getValue();
+    }
+}
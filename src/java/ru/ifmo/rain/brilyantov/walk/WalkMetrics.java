@@ -0,0 +1,233 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a walk: visited files, hashed bytes, failures by cause and time spent on roots.
+ * Time is kept for the last {@value #RECENT_ROOTS} finished roots and in total, as inputs may list millions of files.
+ * Counters are updated by walking threads without locking, while a sampler thread counts
+ * the current hashing speed once a second and prints a progress line to the standard error
+ * if it was requested.
+ * <p>
+ * The metrics are registered as MXBean {@value #OBJECT_NAME}{@code ,id=N} until they are closed,
+ * where {@code N} numbers the walks of the virtual machine, so concurrent walks don't collide.
+ * Time of a root is the time spent on discovering its files, which the parallel walk
+ * keeps close to the time of hashing them by the bounded queue of pending hashes.
+ */
+public class WalkMetrics implements WalkMetricsMXBean, AutoCloseable {
+    public static final String OBJECT_NAME = "ru.ifmo.rain.brilyantov.walk:type=WalkMetrics";
+
+    private static final long SAMPLE_PERIOD_MILLIS = 1000;
+    private static final double MEGABYTE = 1 << 20;
+    private static final int RECENT_ROOTS = 100;
+    private static final AtomicLong ids = new AtomicLong();
+
+    enum Failure {
+        VISIT, READ, ROOT, INVALID_ROOT, OUTPUT
+    }
+
+    private final LongAdder filesVisited = new LongAdder();
+    private final LongAdder filesCached = new LongAdder();
+    private final LongAdder bytesHashed = new LongAdder();
+    private final Map<Failure, LongAdder> failures = new EnumMap<>(Failure.class);
+    private final Map<String, Long> rootMillis = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > RECENT_ROOTS;
+        }
+    };
+    private final LongAdder rootsFinished = new LongAdder();
+    private final LongAdder totalRootMillis = new LongAdder();
+    private final long start = System.nanoTime();
+    private volatile String currentRoot;
+    private volatile long currentRootStart;
+    private volatile double megabytesPerSecond;
+
+    private final long progressSamples;
+    private final ScheduledExecutorService sampler;
+    private ObjectName name;
+    private long samples;
+    private long lastBytes;
+    private long lastSample = start;
+
+    /**
+     * @param progressSeconds period of progress lines in seconds, {@code 0} to print no progress
+     */
+    private WalkMetrics(long progressSeconds) {
+        for (Failure failure : Failure.values()) {
+            failures.put(failure, new LongAdder());
+        }
+        this.progressSamples = progressSeconds * 1000 / SAMPLE_PERIOD_MILLIS;
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "walk-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates metrics of a walk, registers them and starts sampling.
+     *
+     * @param progressSeconds period of progress lines in seconds, {@code 0} to print no progress
+     */
+    static WalkMetrics start(long progressSeconds) {
+        WalkMetrics metrics = new WalkMetrics(progressSeconds);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME + ",id=" + ids.incrementAndGet());
+            server.registerMBean(metrics, name);
+            metrics.name = name;
+        } catch (JMException e) {
+            System.err.println("Failed to register walk metrics (" + e.getMessage() + ")");
+        }
+        metrics.sampler.scheduleAtFixedRate(metrics::sample, SAMPLE_PERIOD_MILLIS, SAMPLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        return metrics;
+    }
+
+    void fileVisited() {
+        filesVisited.increment();
+    }
+
+    void fileCached() {
+        filesCached.increment();
+    }
+
+    void bytesHashed(long bytes) {
+        bytesHashed.add(bytes);
+    }
+
+    void failed(Failure failure) {
+        failures.get(failure).increment();
+    }
+
+    void rootStarted(String root) {
+        currentRootStart = System.nanoTime();
+        currentRoot = root;
+    }
+
+    void rootFinished() {
+        String root = currentRoot;
+        if (root != null) {
+            long millis = getCurrentRootMillis();
+            synchronized (rootMillis) {
+                rootMillis.put(root, millis);
+            }
+            rootsFinished.increment();
+            totalRootMillis.add(millis);
+            currentRoot = null;
+        }
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long bytes = bytesHashed.sum();
+        megabytesPerSecond = (bytes - lastBytes) / MEGABYTE / ((now - lastSample) / 1e9);
+        lastBytes = bytes;
+        lastSample = now;
+        if (progressSamples > 0 && ++samples % progressSamples == 0) {
+            System.err.println(progress());
+        }
+    }
+
+    private String progress() {
+        long failed = 0;
+        for (LongAdder count : failures.values()) {
+            failed += count.sum();
+        }
+        String root = currentRoot;
+        return String.format(
+                "%d files (%d cached), %.1f MB hashed, %.1f MB/s, %d failures%s",
+                getFilesVisited(),
+                getFilesCached(),
+                getBytesHashed() / MEGABYTE,
+                getMegabytesPerSecond(),
+                failed,
+                root == null ? "" : ", " + getCurrentRootMillis() / 1000 + " s in " + root
+        );
+    }
+
+    @Override
+    public long getFilesVisited() {
+        return filesVisited.sum();
+    }
+
+    @Override
+    public long getFilesCached() {
+        return filesCached.sum();
+    }
+
+    @Override
+    public long getBytesHashed() {
+        return bytesHashed.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFailures() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        failures.forEach((failure, count) -> result.put(failure.name().toLowerCase(), count.sum()));
+        return result;
+    }
+
+    @Override
+    public double getMegabytesPerSecond() {
+        return megabytesPerSecond;
+    }
+
+    @Override
+    public double getAverageMegabytesPerSecond() {
+        return getBytesHashed() / MEGABYTE / ((System.nanoTime() - start) / 1e9);
+    }
+
+    @Override
+    public String getCurrentRoot() {
+        return currentRoot;
+    }
+
+    @Override
+    public long getCurrentRootMillis() {
+        return currentRoot == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - currentRootStart);
+    }
+
+    @Override
+    public Map<String, Long> getRootMillis() {
+        synchronized (rootMillis) {
+            return new LinkedHashMap<>(rootMillis);
+        }
+    }
+
+    @Override
+    public long getRootsFinished() {
+        return rootsFinished.sum();
+    }
+
+    @Override
+    public long getTotalRootMillis() {
+        return totalRootMillis.sum();
+    }
+
+    /**
+     * Stops sampling and unregisters the metrics, printing the final progress line if progress was requested.
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException ignored) {
+            }
+        }
+        if (progressSamples > 0) {
+            System.err.println(progress() + String.format(", %.1f MB/s on average", getAverageMegabytesPerSecond()));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link WalkMetrics}.
+ */
+public interface WalkMetricsMXBean {
+    long getFilesVisited();
+
+    /**
+     * @return number of files whose hashes were taken from the hash index
+     */
+    long getFilesCached();
+
+    long getBytesHashed();
+
+    /**
+     * @return number of failures by cause: {@code visit}, {@code read}, {@code root}, {@code invalid_root}, {@code output}
+     */
+    Map<String, Long> getFailures();
+
+    /**
+     * @return hashing speed over the last second in megabytes per second
+     */
+    double getMegabytesPerSecond();
+
+    double getAverageMegabytesPerSecond();
+
+    /**
+     * @return root being walked or {@code null} if there is none
+     */
+    String getCurrentRoot();
+
+    long getCurrentRootMillis();
+
+    /**
+     * @return time spent on the last finished roots in milliseconds, in the order roots were walked
+     */
+    Map<String, Long> getRootMillis();
+
+    long getRootsFinished();
+
+    /**
+     * @return time spent on all finished roots in milliseconds
+     */
+    long getTotalRootMillis();
+}
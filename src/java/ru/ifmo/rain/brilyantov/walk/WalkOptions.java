@@ -0,0 +1,87 @@
+package ru.ifmo.rain.brilyantov.walk;
+
+class WalkOptions {
+    static final String USAGE = "usage: RecursiveWalk <input path> <output path> [-threads N] [-map-threshold BYTES] [-index FILE] [-hash ALGORITHM] [-tree CHUNK_SIZE] [-dedup] [-progress SECONDS]";
+
+    final String input;
+    final String output;
+    int threads = 1;
+    long mapThreshold = HashCounter.DEFAULT_MAP_THRESHOLD;
+    String index;
+    HashAlgorithm algorithm = HashAlgorithms.FNV1_32;
+    long treeChunk;
+    boolean dedup;
+    long progress;
+
+    private WalkOptions(String input, String output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    static WalkOptions parse(String[] args) {
+        if (args == null || args.length < 2 || args[0] == null || args[1] == null) {
+            throw new IllegalArgumentException("expected at least 2 not-null program arguments (input path, output path)");
+        }
+        WalkOptions options = new WalkOptions(args[0], args[1]);
+        for (int i = 2; i < args.length; i++) {
+            if (args[i] == null) {
+                throw new IllegalArgumentException("null option at position " + i);
+            }
+            switch (args[i]) {
+                case "-threads":
+                    options.threads = (int) parsePositive(args, ++i, Integer.MAX_VALUE);
+                    break;
+                case "-map-threshold":
+                    options.mapThreshold = parsePositive(args, ++i, Long.MAX_VALUE);
+                    break;
+                case "-index":
+                    options.index = parseValue(args, ++i);
+                    break;
+                case "-hash":
+                    options.algorithm = HashAlgorithms.byName(parseValue(args, ++i));
+                    break;
+                case "-tree":
+                    options.treeChunk = parsePositive(args, ++i, Long.MAX_VALUE);
+                    break;
+                case "-dedup":
+                    options.dedup = true;
+                    break;
+                case "-progress":
+                    options.progress = parsePositive(args, ++i, Long.MAX_VALUE / 1000);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (options.dedup && options.index != null) {
+            throw new IllegalArgumentException("-index can't be used together with -dedup");
+        }
+        return options;
+    }
+
+    /**
+     * Name of the hashing the output is produced by, tree hashes of different chunk sizes are different hashings.
+     */
+    String hashName() {
+        return treeChunk > 0 ? algorithm.getName() + "-tree-" + treeChunk : algorithm.getName();
+    }
+
+    private static String parseValue(String[] args, int i) {
+        if (i >= args.length || args[i] == null) {
+            throw new IllegalArgumentException("expected value after " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static long parsePositive(String[] args, int i, long max) {
+        try {
+            long value = Long.parseLong(parseValue(args, i));
+            if (value <= 0 || value > max) {
+                throw new IllegalArgumentException("expected value in range [1, " + max + "] for " + args[i - 1] + ", but found : " + value);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected number after " + args[i - 1] + ", but found : " + args[i]);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.ifmo.rain.brilyantov.concurrent.tests;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Correctness, failure and close checks common to all parallel mappers.
+ */
+public abstract class AbstractParallelMapperTests {
+
+    protected abstract ParallelMapper create(int threads);
+
+    protected static List<Integer> values(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Throws the exception, checked or not, without declaring it, like code compiled from other languages does.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> RuntimeException sneakyThrow(Throwable e) throws E {
+        throw (E) e;
+    }
+
+    @Test(timeout = 10_000)
+    public void testMap() throws InterruptedException {
+        for (int threads : new int[]{1, 2, 5}) {
+            ParallelMapper mapper = create(threads);
+            try {
+                for (int size : new int[]{0, 1, 2, 7, 1000}) {
+                    assertEquals(
+                            values(size).stream().map(v -> v * 3).collect(Collectors.toList()),
+                            mapper.map(v -> v * 3, values(size))
+                    );
+                }
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testFirstFailureSkipsRest() throws InterruptedException {
+        ParallelMapper mapper = create(1);
+        try {
+            AtomicInteger applied = new AtomicInteger();
+            try {
+                mapper.map(value -> {
+                    applied.incrementAndGet();
+                    throw new IllegalArgumentException("bad " + value);
+                }, values(100));
+                fail("failure of the function is lost");
+            } catch (IllegalArgumentException e) {
+                assertEquals("bad 0", e.getMessage());
+            }
+            assertEquals("arguments after the failure are mapped", 1, applied.get());
+            assertEquals("mapper is broken by the failure", values(100), mapper.map(Function.identity(), values(100)));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testLaterFailuresSuppressed() throws InterruptedException {
+        ParallelMapper mapper = create(2);
+        CyclicBarrier together = new CyclicBarrier(2);
+        try {
+            try {
+                mapper.map(value -> {
+                    try {
+                        together.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                        throw new AssertionError("tasks are not run in parallel", e);
+                    }
+                    throw new IllegalArgumentException("bad " + value);
+                }, values(2));
+                fail("failure of the function is lost");
+            } catch (IllegalArgumentException e) {
+                assertEquals(1, e.getSuppressed().length);
+                assertTrue(e.getSuppressed()[0] instanceof IllegalArgumentException);
+            }
+            assertEquals(values(10), mapper.map(Function.identity(), values(10)));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testErrorsAndCheckedExceptions() throws InterruptedException {
+        ParallelMapper mapper = create(1);
+        try {
+            try {
+                mapper.map(value -> {
+                    throw new AssertionError("error");
+                }, values(3));
+                fail("error of the function is lost");
+            } catch (AssertionError e) {
+                assertEquals("error", e.getMessage());
+            }
+            try {
+                mapper.map(value -> {
+                    throw sneakyThrow(new IOException("checked"));
+                }, values(3));
+                fail("checked exception of the function is lost");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(values(3), mapper.map(Function.identity(), values(3)));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testCloseFailsPendingCall() throws Exception {
+        ParallelMapper mapper = create(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> call = caller.submit(() -> mapper.map(value -> {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            }, values(100)));
+            started.await();
+            mapper.close();
+            try {
+                call.get();
+                fail("call completed after close");
+            } catch (ExecutionException e) {
+                assertTrue("unexpected " + e.getCause(), e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            gate.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testMapAfterClose() throws InterruptedException {
+        ParallelMapper mapper = create(2);
+        assertEquals(values(10), mapper.map(Function.identity(), values(10)));
+        mapper.close();
+        try {
+            mapper.map(Function.identity(), values(10));
+            fail("call started after close");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.ifmo.rain.brilyantov.concurrent.tests;
+
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.concurrent.IterativeParallelism;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class IterativeParallelismTests {
+
+    private static final int[] THREADS = {1, 3, 8};
+    private static final int[] SIZES = {0, 1, 2, 10, 1000};
+
+    private static List<Integer> values(int size) {
+        Random random = new Random(size);
+        return IntStream.range(0, size).map(i -> random.nextInt(100)).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testScan() throws InterruptedException {
+        try (IterativeParallelism parallelism = new IterativeParallelism()) {
+            for (int size : SIZES) {
+                List<Integer> values = values(size);
+                List<Integer> expected = new ArrayList<>();
+                int total = 0;
+                for (int value : values) {
+                    expected.add(total += value);
+                }
+                for (int threads : THREADS) {
+                    assertEquals(expected, parallelism.scan(threads, values, Integer::sum));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testScanOrder() throws InterruptedException {
+        List<String> values = IntStream.range(0, 20).mapToObj(Integer::toString).collect(Collectors.toList());
+        List<String> scan = new IterativeParallelism().scan(4, values, String::concat);
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(String.join("", values.subList(0, i + 1)), scan.get(i));
+        }
+    }
+
+    @Test
+    public void testDynamicPartitioning() throws InterruptedException {
+        checkPartitioning(new IterativeParallelism().withDynamicPartitioning(7));
+        checkPartitioning(IterativeParallelism.pooled(3).withDynamicPartitioning(1));
+    }
+
+    @Test
+    public void testGuidedPartitioning() throws InterruptedException {
+        checkPartitioning(new IterativeParallelism().withGuidedPartitioning(3));
+        checkPartitioning(IterativeParallelism.pooled(3).withGuidedPartitioning(1));
+    }
+
+    private static void checkPartitioning(IterativeParallelism parallelism) throws InterruptedException {
+        try (IterativeParallelism closeable = parallelism) {
+            for (int size : SIZES) {
+                List<Integer> values = values(size);
+                for (int threads : THREADS) {
+                    AtomicInteger applied = new AtomicInteger();
+                    assertEquals(
+                            values.stream().map(v -> v * 2).collect(Collectors.toList()),
+                            closeable.map(threads, values, v -> {
+                                applied.incrementAndGet();
+                                return v * 2;
+                            })
+                    );
+                    assertEquals("every value is mapped once", size, applied.get());
+                    assertEquals(
+                            values.stream().filter(v -> v % 2 == 0).collect(Collectors.toList()),
+                            closeable.filter(threads, values, v -> v % 2 == 0)
+                    );
+                    assertEquals(
+                            values.stream().map(Object::toString).collect(Collectors.joining()),
+                            closeable.join(threads, values)
+                    );
+                    if (size > 0) {
+                        assertEquals(Collections.max(values), closeable.maximum(threads, values, Integer::compare));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInlineThreshold() throws InterruptedException {
+        List<Integer> values = values(100);
+        Thread caller = Thread.currentThread();
+        IterativeParallelism inline = new IterativeParallelism().withInlineThreshold(values.size());
+        assertTrue(inline.all(4, values, v -> Thread.currentThread() == caller));
+        assertFalse(inline.withInlineThreshold(values.size() - 1).all(4, values, v -> Thread.currentThread() == caller));
+        try {
+            inline.withInlineThreshold(-1);
+            fail("negative inline threshold");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testAnyStopsWorkers() throws InterruptedException {
+        int size = 1 << 20;
+        List<Integer> values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        for (int threads : new int[]{2, 4}) {
+            AtomicInteger tested = new AtomicInteger();
+            assertTrue(new IterativeParallelism().any(threads, values, v -> {
+                tested.incrementAndGet();
+                return v == 0;
+            }));
+            assertTrue("any tested " + tested.get() + " of " + size + " values", tested.get() < size / 2);
+
+            tested.set(0);
+            assertFalse(new IterativeParallelism().all(threads, values, v -> {
+                tested.incrementAndGet();
+                return v != 0;
+            }));
+            assertTrue("all tested " + tested.get() + " of " + size + " values", tested.get() < size / 2);
+        }
+    }
+
+    @Test
+    public void testAnyWithoutMatch() throws InterruptedException {
+        List<Integer> values = values(1000);
+        for (int threads : THREADS) {
+            assertFalse(new IterativeParallelism().any(threads, values, v -> v < 0));
+            assertTrue(new IterativeParallelism().all(threads, values, v -> v >= 0));
+        }
+    }
+}
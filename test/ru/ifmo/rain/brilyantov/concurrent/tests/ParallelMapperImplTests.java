@@ -0,0 +1,228 @@
+package ru.ifmo.rain.brilyantov.concurrent.tests;
+
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.concurrent.MapperListener;
+import ru.ifmo.rain.brilyantov.concurrent.MapperMetrics;
+import ru.ifmo.rain.brilyantov.concurrent.ParallelMapperImpl;
+import ru.ifmo.rain.brilyantov.concurrent.ParallelMapperImpl.OverflowPolicy;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class ParallelMapperImplTests extends AbstractParallelMapperTests {
+
+    @Override
+    protected ParallelMapperImpl create(int threads) {
+        return new ParallelMapperImpl(threads);
+    }
+
+    /**
+     * Identity function signalling its first application, then waiting for the gate to open.
+     */
+    private static Function<Integer, Integer> gated(CountDownLatch started, CountDownLatch gate) {
+        return value -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        };
+    }
+
+    /**
+     * Listener counting submitted tasks.
+     */
+    private static class Submitted implements MapperListener {
+        final AtomicInteger tasks = new AtomicInteger();
+
+        @Override
+        public void submitted(int tasks) {
+            this.tasks.addAndGet(tasks);
+        }
+
+        @Override
+        public void started(int worker, long waitNanos) {
+        }
+
+        @Override
+        public void completed(int worker, long runNanos) {
+        }
+
+        void await(int expected) throws InterruptedException {
+            while (tasks.get() < expected) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Test
+    public void testNoThreads() {
+        for (int threads : new int[]{0, -1}) {
+            try {
+                new ParallelMapperImpl(threads).close();
+                fail("mapper created with " + threads + " threads");
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testMetrics() throws InterruptedException {
+        MapperMetrics metrics = new MapperMetrics();
+        ParallelMapperImpl mapper = new ParallelMapperImpl(3, metrics);
+        assertEquals(values(1000), mapper.map(Function.identity(), values(1000)));
+        mapper.close();
+        assertEquals(3, metrics.getWorkerBusyRatio().length);
+        assertEquals(metrics.getSubmittedTasks(), metrics.getCompletedTasks());
+        assertEquals(0, metrics.getQueueDepth());
+        try {
+            new ParallelMapperImpl(5, metrics).close();
+            fail("metrics listen to two mappers");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testFailingListener() throws InterruptedException {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(1, new Submitted() {
+            @Override
+            public void started(int worker, long waitNanos) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+        });
+        try {
+            assertEquals(values(100), mapper.map(Function.identity(), values(100)));
+            assertEquals(values(100), mapper.map(Function.identity(), values(100)));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testMetricsOfAbortedTasks() throws Exception {
+        MapperMetrics metrics = new MapperMetrics();
+        ParallelMapperImpl mapper = new ParallelMapperImpl(1, metrics);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> call = caller.submit(() -> mapper.map(gated(started, gate), values(100)));
+            started.await();
+            mapper.close();
+            try {
+                call.get();
+                fail("call completed after close");
+            } catch (ExecutionException ignored) {
+            }
+            assertEquals(4, metrics.getSubmittedTasks());
+            assertEquals(1, metrics.getCompletedTasks());
+            assertEquals(3, metrics.getAbortedTasks());
+            assertEquals(0, metrics.getQueueDepth());
+        } finally {
+            gate.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testLargeCallFitsEmptyQueue() throws InterruptedException {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(4, null, 2, policy);
+            try {
+                assertEquals(values(1000), mapper.map(Function.identity(), values(1000)));
+            } finally {
+                mapper.close();
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testReject() throws Exception {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(1, null, 4, OverflowPolicy.REJECT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> blocked = caller.submit(() -> mapper.map(gated(started, gate), values(100)));
+            started.await();
+            try {
+                mapper.map(Function.identity(), values(100));
+                fail("4 tasks admitted to the queue with room for 1");
+            } catch (RejectedExecutionException ignored) {
+            }
+            gate.countDown();
+            assertEquals(values(100), blocked.get());
+            assertEquals(values(100), mapper.map(Function.identity(), values(100)));
+        } finally {
+            gate.countDown();
+            caller.shutdownNow();
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testBlock() throws Exception {
+        Submitted submitted = new Submitted();
+        ParallelMapperImpl mapper = new ParallelMapperImpl(1, submitted, 4, OverflowPolicy.BLOCK);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Integer>> first = callers.submit(() -> mapper.map(gated(started, gate), values(100)));
+            started.await();
+            Future<List<Integer>> second = callers.submit(() -> mapper.map(Function.identity(), values(100)));
+            submitted.await(5);
+            Thread.sleep(100);
+            assertEquals("tasks queued beyond the capacity", 5, submitted.tasks.get());
+            assertFalse(second.isDone());
+            gate.countDown();
+            assertEquals(values(100), first.get());
+            assertEquals(values(100), second.get());
+            assertEquals(8, submitted.tasks.get());
+        } finally {
+            gate.countDown();
+            callers.shutdownNow();
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testPriorityLanes() throws Exception {
+        Submitted submitted = new Submitted();
+        ParallelMapperImpl mapper = new ParallelMapperImpl(1, submitted);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        Queue<String> order = new ConcurrentLinkedQueue<>();
+        try {
+            Future<?> busy = callers.submit(() -> mapper.map(gated(started, gate), values(100)));
+            started.await();
+            submitted.await(4);
+            Future<?> low = callers.submit(() -> mapper.map(value -> order.add("low"), values(8), 0));
+            submitted.await(8);
+            Future<?> high = callers.submit(() -> mapper.map(value -> order.add("high"), values(8), 1));
+            submitted.await(12);
+            gate.countDown();
+            busy.get();
+            low.get();
+            high.get();
+            List<String> expected = new ArrayList<>(Collections.nCopies(8, "high"));
+            expected.addAll(Collections.nCopies(8, "low"));
+            assertEquals(expected, new ArrayList<>(order));
+        } finally {
+            gate.countDown();
+            callers.shutdownNow();
+            mapper.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ru.ifmo.rain.brilyantov.concurrent.tests;
+
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.concurrent.IterativeParallelism;
+import ru.ifmo.rain.brilyantov.concurrent.PrimitiveParallelism;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveParallelismTests {
+
+    private static final int[] THREADS = {1, 3, 8};
+    private static final int[] SIZES = {1, 2, 10, 1000};
+
+    private final Random random = new Random(2018);
+
+    private static List<PrimitiveParallelism> engines() {
+        return Arrays.asList(
+                new PrimitiveParallelism(),
+                new PrimitiveParallelism(new IterativeParallelism().withDynamicPartitioning(7)),
+                new PrimitiveParallelism(new IterativeParallelism().withGuidedPartitioning(3)),
+                new PrimitiveParallelism(new IterativeParallelism().withInlineThreshold(100))
+        );
+    }
+
+    @Test
+    public void testInts() throws InterruptedException {
+        for (PrimitiveParallelism engine : engines()) {
+            for (int size : SIZES) {
+                int[] values = random.ints(size).toArray();
+                for (int threads : THREADS) {
+                    assertEquals(Arrays.stream(values).max().getAsInt(), engine.maximum(threads, values));
+                    assertEquals(Arrays.stream(values).min().getAsInt(), engine.minimum(threads, values));
+                    assertEquals(Arrays.stream(values).asLongStream().sum(), engine.sum(threads, values));
+                    assertEquals(Arrays.stream(values).filter(v -> v % 3 == 0).count(),
+                            engine.count(threads, values, v -> v % 3 == 0));
+                    assertArrayEquals(Arrays.stream(values).filter(v -> v % 3 == 0).toArray(),
+                            engine.filter(threads, values, v -> v % 3 == 0));
+                    assertArrayEquals(Arrays.stream(values).map(v -> v * 7).toArray(),
+                            engine.map(threads, values, v -> v * 7));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongs() throws InterruptedException {
+        for (PrimitiveParallelism engine : engines()) {
+            for (int size : SIZES) {
+                long[] values = random.longs(size).toArray();
+                for (int threads : THREADS) {
+                    assertEquals(Arrays.stream(values).max().getAsLong(), engine.maximum(threads, values));
+                    assertEquals(Arrays.stream(values).min().getAsLong(), engine.minimum(threads, values));
+                    assertEquals(Arrays.stream(values).sum(), engine.sum(threads, values));
+                    assertEquals(Arrays.stream(values).filter(v -> v % 3 == 0).count(),
+                            engine.count(threads, values, v -> v % 3 == 0));
+                    assertArrayEquals(Arrays.stream(values).filter(v -> v % 3 == 0).toArray(),
+                            engine.filter(threads, values, v -> v % 3 == 0));
+                    assertArrayEquals(Arrays.stream(values).map(v -> v * 7).toArray(),
+                            engine.map(threads, values, v -> v * 7));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDoubles() throws InterruptedException {
+        for (PrimitiveParallelism engine : engines()) {
+            for (int size : SIZES) {
+                double[] values = random.ints(size, -1000, 1000).asDoubleStream().toArray();
+                for (int threads : THREADS) {
+                    assertEquals(Arrays.stream(values).max().getAsDouble(), engine.maximum(threads, values), 0);
+                    assertEquals(Arrays.stream(values).min().getAsDouble(), engine.minimum(threads, values), 0);
+                    assertEquals(Arrays.stream(values).sum(), engine.sum(threads, values), 0);
+                    assertEquals(Arrays.stream(values).filter(v -> v > 0).count(),
+                            engine.count(threads, values, v -> v > 0));
+                    assertArrayEquals(Arrays.stream(values).filter(v -> v > 0).toArray(),
+                            engine.filter(threads, values, v -> v > 0), 0);
+                    assertArrayEquals(Arrays.stream(values).map(v -> v / 2).toArray(),
+                            engine.map(threads, values, v -> v / 2), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNaN() throws InterruptedException {
+        double[] values = {1, 5, Double.NaN, -3, 2, 8};
+        for (int threads : THREADS) {
+            assertTrue(Double.isNaN(new PrimitiveParallelism().maximum(threads, values)));
+            assertTrue(Double.isNaN(new PrimitiveParallelism().minimum(threads, values)));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws InterruptedException {
+        PrimitiveParallelism engine = new PrimitiveParallelism();
+        assertEquals(0, engine.sum(4, new int[0]));
+        assertEquals(0, engine.sum(4, new long[0]));
+        assertEquals(0, engine.sum(4, new double[0]), 0);
+        assertEquals(0, engine.count(4, new long[0], v -> true));
+        assertArrayEquals(new int[0], engine.filter(4, new int[0], v -> true));
+        assertArrayEquals(new double[0], engine.map(4, new double[0], v -> v), 0);
+        for (Runnable call : Arrays.<Runnable>asList(
+                () -> maximum(engine, new int[0]),
+                () -> maximum(engine, new long[0]),
+                () -> maximum(engine, new double[0])
+        )) {
+            try {
+                call.run();
+                fail("maximum of no values");
+            } catch (NoSuchElementException ignored) {
+            }
+        }
+    }
+
+    private static void maximum(PrimitiveParallelism engine, Object values) {
+        try {
+            if (values instanceof int[]) {
+                engine.maximum(4, (int[]) values);
+            } else if (values instanceof long[]) {
+                engine.maximum(4, (long[]) values);
+            } else {
+                engine.maximum(4, (double[]) values);
+            }
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.ifmo.rain.brilyantov.concurrent.tests;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import ru.ifmo.rain.brilyantov.concurrent.WorkStealingParallelMapper;
+
+public class WorkStealingParallelMapperTests extends AbstractParallelMapperTests {
+    @Override
+    protected ParallelMapper create(int threads) {
+        return new WorkStealingParallelMapper(threads);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.ifmo.rain.brilyantov.crawler.tests;
+
+import com.sun.net.httpserver.HttpServer;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.crawler.AsyncDownloader;
+import ru.ifmo.rain.brilyantov.crawler.AsyncWebCrawler;
+import ru.ifmo.rain.brilyantov.crawler.NioDownloader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncWebCrawlerTests {
+
+    private static final String ROOT = "http://root/";
+    private static final int STUB_PAGES = 20_000;
+    private static final int STUB_HOSTS = 200;
+    private static final int SITE_PAGES = 500;
+
+    /**
+     * Root links to {@value #STUB_PAGES} pages on {@value #STUB_HOSTS} hosts and to a failing page,
+     * every page links back to the root. Downloads complete a second after they start, holding no threads.
+     */
+    @Test(timeout = 60_000)
+    public void testThousandsInFlight() throws InterruptedException {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AsyncDownloader stub = url -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<Document> document = new CompletableFuture<>();
+            timer.schedule(() -> {
+                inFlight.decrementAndGet();
+                if (url.endsWith("/bad")) {
+                    document.completeExceptionally(new IOException("Bad page " + url));
+                } else {
+                    document.complete(() -> url.equals(ROOT) ? stubLinks() : Collections.singletonList(ROOT));
+                }
+            }, 1, TimeUnit.SECONDS);
+            return document;
+        };
+        int threads = Thread.activeCount();
+        try (AsyncWebCrawler crawler = new AsyncWebCrawler(stub, 2, 1000)) {
+            Result result = crawler.download(ROOT, 3);
+            assertEquals(STUB_PAGES + 1, result.getDownloaded().size());
+            assertEquals(Collections.singleton("http://h1/bad"), result.getErrors().keySet());
+            assertEquals("all pages of a level are in flight at once", STUB_PAGES + 1, peak.get());
+            assertTrue("crawler started " + (Thread.activeCount() - threads) + " threads",
+                    Thread.activeCount() - threads <= 4);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    private static List<String> stubLinks() {
+        List<String> links = new ArrayList<>();
+        for (int i = 0; i < STUB_PAGES; i++) {
+            links.add("http://h" + i % STUB_HOSTS + "/p" + i);
+        }
+        links.add("http://h1/bad");
+        return links;
+    }
+
+    /**
+     * Local site of {@value #SITE_PAGES} pages, page {@code i} links to pages {@code 2i + 1} and {@code 2i + 2},
+     * to a missing page and to an {@code https} page.
+     */
+    @Test(timeout = 60_000)
+    public void testNioCrawl() throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1000);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/missing")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            int page = path.equals("/") ? 0 : Integer.parseInt(path.substring(2));
+            StringBuilder html = new StringBuilder("<html><body>");
+            for (int link = 2 * page + 1; link <= 2 * page + 2 && link < SITE_PAGES; link++) {
+                html.append("<a href=\"/p").append(link).append("\">page</a>");
+            }
+            html.append("<a href=\"/missing\">missing</a><a href=\"https://other/x\">other</a></body></html>");
+            byte[] bytes = html.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        });
+        ExecutorService handlers = Executors.newFixedThreadPool(8);
+        server.setExecutor(handlers);
+        server.start();
+        String site = "http://127.0.0.1:" + server.getAddress().getPort();
+        try (NioDownloader downloader = new NioDownloader(2);
+             AsyncWebCrawler crawler = new AsyncWebCrawler(downloader, 2, 50)) {
+            Result result = crawler.download(site + "/", 20);
+            Set<String> expected = new HashSet<>();
+            expected.add(site + "/");
+            for (int page = 1; page < SITE_PAGES; page++) {
+                expected.add(site + "/p" + page);
+            }
+            assertEquals(expected, new HashSet<>(result.getDownloaded()));
+            assertEquals(new HashSet<>(Arrays.asList(site + "/missing", "https://other/x")), result.getErrors().keySet());
+            assertTrue(result.getErrors().get(site + "/missing").getMessage().contains("404"));
+        } finally {
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+    }
+}
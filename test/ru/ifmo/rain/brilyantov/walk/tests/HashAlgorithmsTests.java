@@ -0,0 +1,110 @@
+package ru.ifmo.rain.brilyantov.walk.tests;
+
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.walk.HashAlgorithm;
+import ru.ifmo.rain.brilyantov.walk.HashAlgorithms;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+import static org.junit.Assert.*;
+
+public class HashAlgorithmsTests {
+
+    private static final String LONG = "Nobody inspects the spammish repetition";
+
+    private static long hash(HashAlgorithm algorithm, String data) {
+        Checksum checksum = algorithm.newChecksum();
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        checksum.update(bytes, 0, bytes.length);
+        return checksum.getValue();
+    }
+
+    @Test
+    public void testFnv1() {
+        assertEquals(0x811c9dc5L, hash(HashAlgorithms.FNV1_32, ""));
+        assertEquals(0x050c5d7eL, hash(HashAlgorithms.FNV1_32, "a"));
+    }
+
+    @Test
+    public void testFnv1a64() {
+        assertEquals(0xcbf29ce484222325L, hash(HashAlgorithms.FNV1A_64, ""));
+        assertEquals(0xaf63dc4c8601ec8cL, hash(HashAlgorithms.FNV1A_64, "a"));
+    }
+
+    @Test
+    public void testXxHash64() {
+        assertEquals(0xef46db3751d8e999L, hash(HashAlgorithms.XXHASH_64, ""));
+        assertEquals(0xd24ec4f1a98c6e5bL, hash(HashAlgorithms.XXHASH_64, "a"));
+        assertEquals(0x44bc2cf5ad770999L, hash(HashAlgorithms.XXHASH_64, "abc"));
+        assertEquals(0xfbcea83c8a378bf1L, hash(HashAlgorithms.XXHASH_64, LONG));
+    }
+
+    @Test
+    public void testCrc32c() {
+        assertEquals(0x00000000L, hash(HashAlgorithms.CRC32C, ""));
+        assertEquals(0xc1d04330L, hash(HashAlgorithms.CRC32C, "a"));
+    }
+
+    @Test
+    public void testStreaming() {
+        Random random = new Random(239);
+        byte[] data = new byte[1000];
+        random.nextBytes(data);
+        for (String name : HashAlgorithms.names()) {
+            HashAlgorithm algorithm = HashAlgorithms.byName(name);
+            Checksum whole = algorithm.newChecksum();
+            whole.update(data, 0, data.length);
+            for (int attempt = 0; attempt < 100; attempt++) {
+                Checksum parts = algorithm.newChecksum();
+                for (int from = 0; from < data.length; ) {
+                    int length = Math.min(random.nextInt(70), data.length - from);
+                    if (length == 1) {
+                        parts.update(data[from]);
+                    } else {
+                        parts.update(data, from, length);
+                    }
+                    from += length;
+                }
+                assertEquals("streaming " + name + " differs", whole.getValue(), parts.getValue());
+                parts.reset();
+                assertEquals("reset " + name + " differs", algorithm.newChecksum().getValue(), parts.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testByteBuffers() {
+        Random random = new Random(239);
+        byte[] data = new byte[1000];
+        random.nextBytes(data);
+        for (String name : HashAlgorithms.names()) {
+            HashAlgorithm algorithm = HashAlgorithms.byName(name);
+            Checksum whole = algorithm.newChecksum();
+            whole.update(data, 0, data.length);
+            for (ByteBuffer buffer : new ByteBuffer[]{
+                    ByteBuffer.wrap(data),
+                    ByteBuffer.allocateDirect(data.length).put(data),
+                    ByteBuffer.allocateDirect(data.length).order(ByteOrder.LITTLE_ENDIAN).put(data)
+            }) {
+                Checksum parts = algorithm.newChecksum();
+                for (int from = 0; from < data.length; ) {
+                    int length = Math.min(random.nextInt(70), data.length - from);
+                    buffer.limit(from + length).position(from);
+                    parts.update(buffer);
+                    assertEquals("buffer of " + name + " not consumed", from + length, buffer.position());
+                    from += length;
+                }
+                assertEquals("buffer hash of " + name + " differs", whole.getValue(), parts.getValue());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknown() {
+        HashAlgorithms.byName("md5");
+    }
+}
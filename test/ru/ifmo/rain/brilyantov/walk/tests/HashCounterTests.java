@@ -0,0 +1,115 @@
+package ru.ifmo.rain.brilyantov.walk.tests;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.walk.HashCounter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class HashCounterTests {
+
+    private static final Path[] SAMPLES = {
+            Paths.get("java", "info", "kgeorgiy", "java", "advanced", "walk", "samples"),
+            Paths.get("java", "__Test__Walk__")
+    };
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 5;
+
+    private static List<Path> files;
+    private static Map<Path, Long> expected;
+
+    @BeforeClass
+    public static void collectSamples() throws IOException {
+        files = new ArrayList<>();
+        for (Path root : SAMPLES) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                files.addAll(walk.filter(Files::isRegularFile).collect(Collectors.toList()));
+            }
+        }
+        assertFalse("walk test samples not found", files.isEmpty());
+        expected = new HashMap<>();
+        for (Path file : files) {
+            expected.put(file, fnv1(Files.readAllBytes(file)));
+        }
+    }
+
+    private static long fnv1(byte[] bytes) {
+        int h = 0x811c9dc5;
+        for (byte b : bytes) {
+            h = (h * 0x01000193) ^ (b & 0xff);
+        }
+        return h & 0xffffffffL;
+    }
+
+    @Test
+    public void testSequential() {
+        HashCounter counter = new HashCounter();
+        HashCounter mappingCounter = new HashCounter(1);
+        for (Path file : files) {
+            assertEquals("wrong hash of " + file, (long) expected.get(file), counter.hash(file));
+            assertEquals("wrong mapped hash of " + file, (long) expected.get(file), mappingCounter.hash(file));
+            assertEquals("wrong static hash of " + file, (int) (long) expected.get(file), HashCounter.getFNV1Hash(file));
+        }
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertEquals("expected zero hash of missing file", 0, new HashCounter().hash(Paths.get("java", "missing")));
+    }
+
+    @Test
+    public void testConcurrentStatic() throws InterruptedException, ExecutionException {
+        stress(() -> file -> HashCounter.getFNV1Hash(file) & 0xffffffffL);
+    }
+
+    @Test
+    public void testConcurrentInstances() throws InterruptedException, ExecutionException {
+        stress(() -> new HashCounter()::hash);
+    }
+
+    @Test
+    public void testConcurrentMappingInstances() throws InterruptedException, ExecutionException {
+        stress(() -> new HashCounter(1)::hash);
+    }
+
+    private interface Hasher {
+        long hash(Path file);
+    }
+
+    private void stress(Supplier<Hasher> perThreadHasher) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final long seed = t;
+                results.add(pool.submit(() -> {
+                    Hasher hasher = perThreadHasher.get();
+                    List<Path> order = new ArrayList<>(files);
+                    Random random = new Random(seed);
+                    for (int round = 0; round < ROUNDS; round++) {
+                        Collections.shuffle(order, random);
+                        for (Path file : order) {
+                            assertEquals("wrong concurrent hash of " + file, (long) expected.get(file), hasher.hash(file));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.ifmo.rain.brilyantov.walk.tests;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.ifmo.rain.brilyantov.walk.RecursiveWalk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ParallelWalkTests {
+
+    private static final List<String> ROOTS = Arrays.asList(
+            Paths.get("java", "info", "kgeorgiy", "java", "advanced", "walk", "samples").toString(),
+            Paths.get("java", "missing").toString(),
+            Paths.get("java", "__Test__Walk__").toString(),
+            Paths.get("java", "info", "kgeorgiy", "java", "advanced", "walk", "samples", "binary").toString()
+    );
+
+    private static Path directory;
+    private static Path input;
+
+    @BeforeClass
+    public static void writeInput() throws IOException {
+        directory = Files.createTempDirectory("parallel-walk");
+        input = directory.resolve("input.txt");
+        Files.write(input, ROOTS, StandardCharsets.UTF_8);
+    }
+
+    @AfterClass
+    public static void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static byte[] walk(String... options) throws IOException {
+        Path output = directory.resolve("output" + String.join("", options).replace(' ', '_') + ".txt");
+        String[] args = Stream.concat(
+                Stream.of(input.toString(), output.toString()),
+                Arrays.stream(options)
+        ).toArray(String[]::new);
+        RecursiveWalk.main(args);
+        return Files.readAllBytes(output);
+    }
+
+    @Test
+    public void testSequentialFormat() throws IOException {
+        List<String> lines = Arrays.asList(new String(walk("-threads", "1"), StandardCharsets.UTF_8).split("\n"));
+        assertTrue("too few lines: " + lines.size(), lines.size() > ROOTS.size());
+        for (String line : lines) {
+            assertTrue("malformed line: " + line, line.matches("[0-9a-f]{8} .+"));
+        }
+        assertTrue(lines.contains("00000000 " + ROOTS.get(1)));
+        assertEquals("root given as a file is the last line", ROOTS.get(3), lines.get(lines.size() - 1).substring(9));
+    }
+
+    @Test
+    public void testParallelOrder() throws IOException {
+        byte[] expected = walk("-threads", "1");
+        for (int round = 0; round < 5; round++) {
+            assertArrayEquals("parallel walk differs from sequential one", expected, walk("-threads", "8"));
+            assertArrayEquals("parallel walk differs from sequential one", expected, walk("-threads", "2"));
+        }
+    }
+}
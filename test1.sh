@@ -0,0 +1,5 @@
+#!/usr/bin/env bash
+./compile1.sh
+LIBS=./lib/hamcrest-core-1.3.jar:./lib/junit-4.11.jar
+javac -cp ./classes/:${LIBS} -d classes/ test/ru/ifmo/rain/brilyantov/walk/tests/*.java
+java -cp ./classes:${LIBS} org.junit.runner.JUnitCore ru.ifmo.rain.brilyantov.walk.tests.HashCounterTests ru.ifmo.rain.brilyantov.walk.tests.HashAlgorithmsTests ru.ifmo.rain.brilyantov.walk.tests.ParallelWalkTests